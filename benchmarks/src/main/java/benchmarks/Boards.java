@@ -0,0 +1,79 @@
+package benchmarks;
+
+import manager.InMemoryTaskManager;
+import manager.TaskManager;
+import modelling.Epic;
+import modelling.Subtask;
+import modelling.Task;
+import modelling.TaskStatus;
+
+import java.util.Random;
+
+// Генерация тестовых досок для бенчмарков
+final class Boards {
+    static final String[] WORDS = {
+            "купить", "хлеб", "молоко", "отчёт", "квартал", "срочно", "позвонить", "клиент",
+            "встреча", "команда", "релиз", "сборка", "ошибка", "тесты", "документация", "ревью"
+    };
+    private static final TaskStatus[] STATUSES = TaskStatus.values();
+
+    private Boards() {
+    }
+
+    static String text(Random random, int words) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+            // половина слов - редкие варианты вида "отчёт417", остальные - частые
+            if (random.nextBoolean()) {
+                text.append(random.nextInt(1000));
+            }
+        }
+        return text.toString();
+    }
+
+    static TaskStatus status(Random random) {
+        return STATUSES[random.nextInt(STATUSES.length)];
+    }
+
+    // tasks задач, epics эпиков и по subtasksPerEpic подзадач у каждого, через обычные create*
+    static void fill(TaskManager manager, int tasks, int epics, int subtasksPerEpic, long seed) {
+        Random random = new Random(seed);
+        for (int i = 0; i < tasks; i++) {
+            manager.createTask(new Task(text(random, 2), text(random, 6), status(random)));
+        }
+        for (int i = 0; i < epics; i++) {
+            Epic epic = manager.createEpic(new Epic(text(random, 2), text(random, 6)));
+            for (int j = 0; j < subtasksPerEpic; j++) {
+                manager.createSubtask(new Subtask(text(random, 2), text(random, 6), status(random), epic.getId()));
+            }
+        }
+    }
+
+    // Строки снимка: каждая десятая - эпик, за ним четыре его подзадачи, остальные - задачи.
+    // Сущности добавляются как при загрузке, без записи на диск и без пересчёта статусов эпиков
+    static void fillLoaded(InMemoryTaskManager manager, int rows, long seed) {
+        Random random = new Random(seed);
+        Epic epic = null;
+        for (int id = 0; id < rows; id++) {
+            int position = id % 10;
+            if (position == 0) {
+                epic = new Epic(text(random, 2), text(random, 6));
+                epic.setId(id);
+                manager.addLoadedEpic(epic);
+            } else if (position <= 4) {
+                Subtask subtask = new Subtask(text(random, 2), text(random, 6), status(random), epic.getId());
+                subtask.setId(id);
+                manager.addLoadedSubtask(subtask);
+                epic.addSubtaskId(id, subtask.getTaskStatus());
+            } else {
+                Task task = new Task(text(random, 2), text(random, 6), status(random));
+                task.setId(id);
+                manager.addLoadedTask(task);
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package benchmarks;
+
+import manager.ConcurrentHistoryManager;
+import manager.ConcurrentTaskManager;
+import manager.HistoryManager;
+import modelling.Epic;
+import modelling.Subtask;
+import modelling.Task;
+import modelling.TaskStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Пропускная способность потокобезопасных реализаций при работе из нескольких потоков.
+// Число потоков меняется ключом -t
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class ConcurrencyBenchmark {
+    private static final int EPICS = 1024;
+    private static final int TASKS = 10_000;
+
+    private ConcurrentTaskManager manager;
+    private HistoryManager history;
+    private int[] epicIds;
+    private Task[] tasks;
+
+    @Setup
+    public void setUp() {
+        manager = new ConcurrentTaskManager();
+        epicIds = new int[EPICS];
+        for (int i = 0; i < EPICS; i++) {
+            epicIds[i] = manager.createEpic(new Epic("Эпик " + i, "Описание")).getId();
+        }
+        history = new ConcurrentHistoryManager();
+        tasks = new Task[TASKS];
+        for (int i = 0; i < TASKS; i++) {
+            tasks[i] = new Task("Задача " + i, "Описание");
+            tasks[i].setId(i);
+        }
+    }
+
+    // у каждого потока свой генератор индексов
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int value = (int) Thread.currentThread().getId();
+
+        int next(int bound) {
+            value = value * 1103515245 + 12345;
+            return (value >>> 1) % bound;
+        }
+    }
+
+    // подзадачи разных эпиков создаются параллельно (замки по полосам эпиков)
+    @Benchmark
+    public Subtask createAndDeleteSubtask(Cursor cursor) {
+        Subtask subtask = manager.createSubtask(new Subtask("Подзадача", "Описание", TaskStatus.IN_PROGRESS,
+                epicIds[cursor.next(EPICS)]));
+        manager.deleteSubtask(subtask.getId());
+        return subtask;
+    }
+
+    @Benchmark
+    public void historyAdd(Cursor cursor) {
+        history.add(tasks[cursor.next(TASKS)]);
+    }
+}
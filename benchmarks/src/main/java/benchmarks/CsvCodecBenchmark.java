@@ -0,0 +1,69 @@
+package benchmarks;
+
+import formatters.CSVFormatter;
+import formatters.CsvCodec;
+import modelling.Subtask;
+import modelling.Task;
+import modelling.TaskStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+// Кодирование и разбор одной записи: прежний CSVFormatter на строках против побайтового CsvCodec.
+// В обоих случаях учитывается перевод в байты UTF-8 и обратно, как при работе с файлом.
+// Выделение памяти на запись видно с -prof gc
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CsvCodecBenchmark {
+    private Subtask subtask;
+    private byte[] lineBytes;
+    private final CsvCodec codec = new CsvCodec(4096);
+    private final OutputStream discard = OutputStream.nullOutputStream();
+
+    @Setup
+    public void setUp() {
+        subtask = new Subtask("Подготовить квартальный отчёт", "Собрать цифры по продажам и отправить клиенту",
+                TaskStatus.IN_PROGRESS, 12345);
+        subtask.setId(678901);
+        lineBytes = CSVFormatter.toCSVString(subtask).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] csvFormatterEncode() {
+        return CSVFormatter.toCSVString(subtask).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public int csvCodecEncode() throws IOException {
+        codec.encode(subtask);
+        int size = codec.size();
+        codec.drainTo(discard);
+        return size;
+    }
+
+    @Benchmark
+    public Task csvFormatterParse() {
+        return CSVFormatter.fromString(new String(lineBytes, StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public Task csvCodecParse() {
+        return codec.read(lineBytes, 0, lineBytes.length);
+    }
+}
@@ -0,0 +1,74 @@
+package benchmarks;
+
+import manager.InMemoryTaskManager;
+import modelling.Epic;
+import modelling.Subtask;
+import modelling.TaskStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Пересчёт статуса одного большого эпика (calculateEpicStatus) при изменении его подзадач
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EpicStatusBenchmark {
+    @Param({"1000", "100000"})
+    public int subtasks;
+
+    private InMemoryTaskManager manager;
+    private Epic epic;
+    private Subtask[] toggled;
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        manager = new InMemoryTaskManager();
+        epic = manager.createEpic(new Epic("Эпик", "Большой эпик"));
+        for (int i = 0; i < subtasks; i++) {
+            manager.createSubtask(new Subtask("Подзадача " + i, "Описание", TaskStatus.DONE, epic.getId()));
+        }
+        // две версии одной подзадачи: статус переключается между NEW и DONE,
+        // и каждое обновление меняет статус эпика
+        List<Integer> ids = epic.getSubtaskIds();
+        toggled = new Subtask[2];
+        for (int i = 0; i < toggled.length; i++) {
+            toggled[i] = new Subtask("Подзадача", "Описание", i == 0 ? TaskStatus.NEW : TaskStatus.DONE,
+                    epic.getId());
+            toggled[i].setId(ids.get(ids.size() / 2));
+        }
+    }
+
+    @Benchmark
+    public TaskStatus updateSubtaskStatus() {
+        manager.updateSubtask(toggled[cursor++ & 1]);
+        return epic.getTaskStatus();
+    }
+
+    @Benchmark
+    public TaskStatus createAndDeleteSubtask() {
+        Subtask subtask = manager.createSubtask(new Subtask("Подзадача", "Описание", TaskStatus.IN_PROGRESS,
+                epic.getId()));
+        manager.deleteSubtask(subtask.getId());
+        return epic.getTaskStatus();
+    }
+
+    @Benchmark
+    public List<Subtask> listEpicSubtasks() {
+        return manager.listEpicSubtasks(epic.getId());
+    }
+}
@@ -0,0 +1,91 @@
+package benchmarks;
+
+import manager.ConcurrentHistoryManager;
+import manager.HistoryManager;
+import manager.HistorySettings;
+import manager.InMemoryHistoryManager;
+import modelling.Task;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Операции истории в одном потоке: повторный просмотр (перенос в конец), удаление, чтение.
+// inMemory - неограниченная история, bounded - LRU на половину задач, concurrent - ConcurrentHistoryManager
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HistoryBenchmark {
+    @Param({"inMemory", "bounded", "concurrent"})
+    public String impl;
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    private HistoryManager history;
+    private Task[] tasks;
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        switch (impl) {
+            case "bounded":
+                HistorySettings settings = new HistorySettings();
+                settings.setMaxSize(size / 2);
+                history = new InMemoryHistoryManager(settings);
+                break;
+            case "concurrent":
+                history = new ConcurrentHistoryManager();
+                break;
+            default:
+                history = new InMemoryHistoryManager();
+        }
+        tasks = new Task[size];
+        for (int i = 0; i < size; i++) {
+            tasks[i] = new Task("Задача " + i, "Описание");
+            tasks[i].setId(i);
+            history.add(tasks[i]);
+        }
+    }
+
+    private Task next() {
+        cursor = cursor * 1103515245 + 12345;
+        return tasks[(cursor >>> 1) % tasks.length];
+    }
+
+    @Benchmark
+    public void add() {
+        history.add(next());
+    }
+
+    @Benchmark
+    public void removeAndAdd() {
+        Task task = next();
+        history.remove(task.getId());
+        history.add(task);
+    }
+
+    @Benchmark
+    public List<Task> getHistory() {
+        return history.getHistory();
+    }
+
+    @Benchmark
+    public void forEach(Blackhole blackhole) {
+        history.forEach(blackhole::consume);
+    }
+}
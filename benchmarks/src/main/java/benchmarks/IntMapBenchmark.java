@@ -0,0 +1,88 @@
+package benchmarks;
+
+import collections.IntObjectHashMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// HashMap<Integer, V> против IntObjectHashMap на последовательных id, как у менеджера.
+// Объём памяти самих таблиц удобно сравнивать по -prof gc при заполнении (setUp) или через heap dump
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class IntMapBenchmark {
+    private static final int LOOKUPS = 4096;
+
+    @Param({"1000000", "10000000"})
+    public int size;
+
+    private Map<Integer, Object> hashMap;
+    private IntObjectHashMap<Object> intMap;
+    private int[] keys;
+
+    @Setup
+    public void setUp() {
+        Object value = new Object();
+        hashMap = new HashMap<>();
+        intMap = new IntObjectHashMap<>();
+        for (int i = 0; i < size; i++) {
+            hashMap.put(i, value);
+            intMap.put(i, value);
+        }
+        Random random = new Random(42);
+        keys = new int[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            keys[i] = random.nextInt(size);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public void hashMapGet(Blackhole blackhole) {
+        for (int key : keys) {
+            blackhole.consume(hashMap.get(key));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public void intMapGet(Blackhole blackhole) {
+        for (int key : keys) {
+            blackhole.consume(intMap.get(key));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public void hashMapRemoveAndPut() {
+        for (int key : keys) {
+            hashMap.put(key, hashMap.remove(key));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public void intMapRemoveAndPut() {
+        for (int key : keys) {
+            intMap.put(key, intMap.remove(key));
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package benchmarks;
+
+import manager.InMemoryTaskManager;
+import modelling.Task;
+import modelling.TaskStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+// Запросы без записи в историю: индексы (статусный, полнотекстовый, постраничный)
+// против полного обхода, представления против копирования списка
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class QueryBenchmark {
+    @Param({"100000", "1000000"})
+    public int size;
+
+    // редкие слова целиком и частые префиксы
+    @Param({"отчёт417 клиент", "куп хле"})
+    public String query;
+
+    private InMemoryTaskManager manager;
+    private String[] words;
+
+    @Setup
+    public void setUp() {
+        manager = new InMemoryTaskManager();
+        Boards.fillLoaded(manager, size, 42);
+        words = query.split(" ");
+    }
+
+    @Benchmark
+    public List<Integer> searchIndex() {
+        return manager.search(query, 20);
+    }
+
+    @Benchmark
+    public List<Task> searchScan() {
+        return manager.scan(task -> {
+            String text = (task.getName() + " " + task.getDescription()).toLowerCase(Locale.ROOT);
+            for (String word : words) {
+                if (!text.contains(word)) {
+                    return false;
+                }
+            }
+            return true;
+        });
+    }
+
+    @Benchmark
+    public List<Task> statusIndex() {
+        return manager.getTasksByStatus(TaskStatus.IN_PROGRESS);
+    }
+
+    @Benchmark
+    public List<Task> statusScan() {
+        return manager.scan(task -> "Task".equals(task.getType()) && task.getTaskStatus() == TaskStatus.IN_PROGRESS);
+    }
+
+    @Benchmark
+    public List<Task> listTasksPage() {
+        return manager.listTasks(size / 2, 100);
+    }
+
+    @Benchmark
+    public List<Task> listTasksCopy() {
+        return manager.listTasks();
+    }
+
+    @Benchmark
+    public void iterateView(Blackhole blackhole) {
+        for (Task task : manager.getTasksView()) {
+            blackhole.consume(task);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package benchmarks;
+
+import manager.FileBackedTaskManager;
+import manager.PersistenceSettings;
+import manager.SnapshotFormat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+// Полная запись и загрузка снимка FileBackedTaskManager в CSV и бинарном формате.
+// Параметр loadParallelism относится только к загрузке CSV (1 - последовательный разбор)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SnapshotBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Board {
+        @Param({"10000", "100000", "1000000"})
+        public int rows;
+
+        @Param({"CSV", "BINARY"})
+        public SnapshotFormat format;
+
+        File file;
+        FileBackedTaskManager manager;
+
+        @Setup
+        public void setUp() throws IOException {
+            file = Files.createTempFile("kanban-benchmark", ".snapshot").toFile();
+            PersistenceSettings settings = new PersistenceSettings();
+            settings.setSnapshotFormat(format);
+            manager = FileBackedTaskManager.create(file, settings);
+            Boards.fillLoaded(manager, rows, 42);
+            manager.save();
+        }
+
+        @TearDown
+        public void tearDown() {
+            manager.close();
+            file.delete();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class LoadSettings {
+        @Param({"1", "4"})
+        public int loadParallelism;
+
+        PersistenceSettings settings;
+
+        @Setup
+        public void setUp() {
+            settings = new PersistenceSettings();
+            settings.setLoadParallelism(loadParallelism);
+        }
+    }
+
+    @Benchmark
+    public long save(Board board) {
+        board.manager.save();
+        return board.file.length();
+    }
+
+    @Benchmark
+    public FileBackedTaskManager load(Board board, LoadSettings load) {
+        return FileBackedTaskManager.loadFromFile(board.file, load.settings);
+    }
+}
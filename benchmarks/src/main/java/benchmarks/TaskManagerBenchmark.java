@@ -0,0 +1,139 @@
+package benchmarks;
+
+import manager.ConcurrentTaskManager;
+import manager.InMemoryTaskManager;
+import manager.TaskManager;
+import modelling.Epic;
+import modelling.Subtask;
+import modelling.Task;
+import modelling.TaskStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// CRUD-операции менеджеров на заполненной доске.
+// Создание всегда парное с удалением, поэтому размер доски не меняется между итерациями
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TaskManagerBenchmark {
+    private static final int SUBTASKS_PER_EPIC = 10;
+
+    @Param({"inMemory", "concurrent"})
+    public String manager;
+
+    @Param({"10000", "100000"})
+    public int size;
+
+    private TaskManager taskManager;
+    private int[] taskIds;
+    private int[] epicIds;
+    private int[] subtaskIds;
+    private int cursor;
+    private final Random random = new Random(1);
+
+    @Setup
+    public void setUp() {
+        taskManager = "concurrent".equals(manager) ? new ConcurrentTaskManager() : new InMemoryTaskManager();
+        Boards.fill(taskManager, size, size / SUBTASKS_PER_EPIC, SUBTASKS_PER_EPIC, 42);
+        taskIds = taskManager.listTasks().stream().mapToInt(Task::getId).toArray();
+        epicIds = taskManager.listEpics().stream().mapToInt(Task::getId).toArray();
+        subtaskIds = taskManager.listSubtasks().stream().mapToInt(Task::getId).toArray();
+    }
+
+    // псевдослучайный, но одинаковый для всех реализаций порядок обращений
+    private int next(int[] ids) {
+        cursor = cursor * 1103515245 + 12345;
+        return ids[(cursor >>> 1) % ids.length];
+    }
+
+    @Benchmark
+    public Task createAndDeleteTask() {
+        Task task = taskManager.createTask(new Task("Задача", "Описание"));
+        taskManager.deleteTask(task.getId());
+        return task;
+    }
+
+    @Benchmark
+    public Task getTask() {
+        return taskManager.getTask(next(taskIds));
+    }
+
+    @Benchmark
+    public Task peekTask() {
+        return taskManager.peekTask(next(taskIds));
+    }
+
+    @Benchmark
+    public boolean updateTask() {
+        int id = next(taskIds);
+        Task task = new Task("Задача " + id, "Новое описание", TaskStatus.IN_PROGRESS);
+        task.setId(id);
+        return taskManager.updateTask(id, task);
+    }
+
+    @Benchmark
+    public Epic createAndDeleteEpic() {
+        Epic epic = taskManager.createEpic(new Epic("Эпик", "Описание"));
+        taskManager.deleteEpic(epic.getId());
+        return epic;
+    }
+
+    @Benchmark
+    public Epic getEpic() {
+        return taskManager.getEpic(next(epicIds));
+    }
+
+    @Benchmark
+    public boolean updateEpic() {
+        return taskManager.updateEpic(next(epicIds), "Эпик", "Новое описание");
+    }
+
+    @Benchmark
+    public Subtask createAndDeleteSubtask() {
+        Subtask subtask = taskManager.createSubtask(new Subtask("Подзадача", "Описание", TaskStatus.NEW,
+                next(epicIds)));
+        taskManager.deleteSubtask(subtask.getId());
+        return subtask;
+    }
+
+    @Benchmark
+    public Subtask getSubtask() {
+        return taskManager.getSubtask(next(subtaskIds));
+    }
+
+    // меняет статус подзадачи и, как следствие, пересчитывает статус эпика
+    @Benchmark
+    public boolean updateSubtask() {
+        Subtask current = taskManager.peekSubtask(next(subtaskIds));
+        Subtask updated = new Subtask(current.getName(), current.getDescription(),
+                Boards.status(random), current.getEpicId());
+        updated.setId(current.getId());
+        return taskManager.updateSubtask(updated);
+    }
+
+    @Benchmark
+    public List<Task> getAllTasks() {
+        return taskManager.getAllTasks();
+    }
+
+    @Benchmark
+    public List<Task> listTasksPage() {
+        return taskManager.listTasks(next(taskIds), 100);
+    }
+}
@@ -1,3 +1,4 @@
+import manager.ConsoleDiagnosticSink;
 import manager.FileBackedTaskManager;
 import manager.InMemoryTaskManager;
 import manager.Managers;
@@ -10,6 +11,7 @@ import java.io.File;
 
 public class Main {
     public static void main(String[] args) {
+        Managers.setDefaultDiagnosticSink(new ConsoleDiagnosticSink());
         InMemoryTaskManager manager1 = Managers.getDefault();
         Task task1 = manager1.createTask(new Task("Task 1", "Description 1"));
         Task task2 = manager1.createTask(new Task("Task 2", "Description 2"));
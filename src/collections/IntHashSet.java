@@ -0,0 +1,64 @@
+package collections;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+// Множество int без упаковки: элементы лежат подряд в массиве (обход за O(размер)),
+// позиция каждого элемента хранится в IntIntHashMap. Удаление переносит последний элемент
+// на место удалённого, поэтому порядок обхода не сохраняется.
+public class IntHashSet {
+    private int[] elements = new int[8];
+    private int size;
+    private final IntIntHashMap positions = new IntIntHashMap();
+
+    public boolean add(int value) {
+        if (positions.containsKey(value)) {
+            return false;
+        }
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, size * 2);
+        }
+        elements[size] = value;
+        positions.put(value, size);
+        size++;
+        return true;
+    }
+
+    public boolean remove(int value) {
+        int position = positions.remove(value);
+        if (position == IntIntHashMap.NO_VALUE) {
+            return false;
+        }
+        size--;
+        if (position != size) {
+            int moved = elements[size];
+            elements[position] = moved;
+            positions.put(moved, position);
+        }
+        return true;
+    }
+
+    public boolean contains(int value) {
+        return positions.containsKey(value);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+        positions.clear();
+    }
+
+    // Множество нельзя изменять во время обхода
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < size; i++) {
+            action.accept(elements[i]);
+        }
+    }
+}
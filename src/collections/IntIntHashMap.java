@@ -0,0 +1,137 @@
+package collections;
+
+import java.util.Arrays;
+
+// Отображение int -> int без упаковки: открытая адресация, линейное пробирование,
+// удаление со сдвигом назад. Занятость ячейки хранится отдельно, поэтому ключ и значение - любые int.
+public class IntIntHashMap {
+    // возвращается get/remove, если ключа нет
+    public static final int NO_VALUE = Integer.MIN_VALUE;
+
+    private static final int DEFAULT_CAPACITY = 8;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private int[] keys;
+    private int[] values;
+    private boolean[] used;
+    private int mask;
+    private int size;
+    private int resizeThreshold;
+
+    public interface EntryConsumer {
+        void accept(int key, int value);
+    }
+
+    public IntIntHashMap() {
+        allocate(DEFAULT_CAPACITY);
+    }
+
+    // для множества маленьких таблиц (например, списков вхождений слова)
+    public IntIntHashMap(int expectedSize) {
+        allocate(Math.max(2, Integer.highestOneBit(Math.max(1, (int) (expectedSize / LOAD_FACTOR))) << 1));
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private int find(int key) {
+        for (int i = IntObjectHashMap.slot(key, mask); used[i]; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public int get(int key) {
+        int i = find(key);
+        return i < 0 ? NO_VALUE : values[i];
+    }
+
+    public boolean containsKey(int key) {
+        return find(key) >= 0;
+    }
+
+    public void put(int key, int value) {
+        int i = IntObjectHashMap.slot(key, mask);
+        for (; used[i]; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+        }
+        keys[i] = key;
+        values[i] = value;
+        used[i] = true;
+        if (++size > resizeThreshold) {
+            resize();
+        }
+    }
+
+    public int remove(int key) {
+        int free = find(key);
+        if (free < 0) {
+            return NO_VALUE;
+        }
+        int previous = values[free];
+        used[free] = false;
+        size--;
+        for (int i = (free + 1) & mask; used[i]; i = (i + 1) & mask) {
+            int home = IntObjectHashMap.slot(keys[i], mask);
+            boolean between = free <= i ? free < home && home <= i : free < home || home <= i;
+            if (!between) {
+                keys[free] = keys[i];
+                values[free] = values[i];
+                used[free] = true;
+                used[i] = false;
+                free = i;
+            }
+        }
+        return previous;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Таблицу нельзя изменять во время обхода
+    public void forEach(EntryConsumer action) {
+        for (int i = 0; i < keys.length; i++) {
+            if (used[i]) {
+                action.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+    private void resize() {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(oldKeys.length << 1);
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldUsed[j]) {
+                int i = IntObjectHashMap.slot(oldKeys[j], mask);
+                while (used[i]) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+                used[i] = true;
+            }
+        }
+    }
+}
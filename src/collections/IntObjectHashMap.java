@@ -0,0 +1,257 @@
+package collections;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.Consumer;
+
+// Хеш-таблица с ключами int без упаковки в Integer: открытая адресация, линейное пробирование.
+// Ключи и значения лежат в двух массивах, пустая ячейка - значение null (null хранить нельзя).
+// Удаление сдвигает следующие элементы цепочки назад, поэтому "надгробий" нет.
+// Методы с int-ключом выбираются компилятором вместо get(Object)/put(Integer, V) из Map,
+// а интерфейс Map сохранён для существующего кода (entrySet, values, keySet).
+// Изменять таблицу во время обхода нельзя.
+public class IntObjectHashMap<V> extends AbstractMap<Integer, V> {
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private int[] keys;
+    private Object[] values;
+    private int mask;
+    private int size;
+    private int resizeThreshold;
+
+    public IntObjectHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public IntObjectHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(DEFAULT_CAPACITY, (int) (expectedSize / LOAD_FACTOR) + 1) - 1) << 1;
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    // Ключ перемешивается умножением на золотое сечение. Без перемешивания id, выдаваемые подряд,
+    // занимают одну сплошную серию ячеек, и удаление со сдвигом назад просматривает её до конца
+    static int slot(int key, int mask) {
+        int hash = key * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    // Индекс ячейки с ключом или -1
+    private int find(int key) {
+        for (int i = slot(key, mask); values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int i = find(key);
+        return i < 0 ? null : (V) values[i];
+    }
+
+    public boolean containsKey(int key) {
+        return find(key) >= 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        if (value == null) {
+            throw new NullPointerException("IntObjectHashMap не хранит null");
+        }
+        int i = slot(key, mask);
+        for (; values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                V previous = (V) values[i];
+                values[i] = value;
+                return previous;
+            }
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size > resizeThreshold) {
+            resize();
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        int i = find(key);
+        if (i < 0) {
+            return null;
+        }
+        V previous = (V) values[i];
+        values[i] = null;
+        size--;
+        shiftBack(i);
+        return previous;
+    }
+
+    // Переносит назад элементы, которые при поиске проходили через освобождённую ячейку
+    private void shiftBack(int free) {
+        for (int i = (free + 1) & mask; values[i] != null; i = (i + 1) & mask) {
+            int home = slot(keys[i], mask);
+            boolean between = free <= i ? free < home && home <= i : free < home || home <= i;
+            if (!between) {
+                keys[free] = keys[i];
+                values[free] = values[i];
+                values[i] = null;
+                free = i;
+            }
+        }
+    }
+
+    private void resize() {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(oldKeys.length << 1);
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldValues[j] != null) {
+                int i = slot(oldKeys[j], mask);
+                while (values[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    // Методы Map: ключ-объект разворачивается и передаётся в версии с int
+
+    @Override
+    public V get(Object key) {
+        return key instanceof Integer ? get((int) (Integer) key) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof Integer && containsKey((int) (Integer) key);
+    }
+
+    @Override
+    public V put(Integer key, V value) {
+        return put((int) key, value);
+    }
+
+    @Override
+    public V remove(Object key) {
+        return key instanceof Integer ? remove((int) (Integer) key) : null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public void clear() {
+        if (size == 0) {
+            return;
+        }
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    @Override
+    public Collection<V> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<V> iterator() {
+                return new SlotIterator<>() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    V at(int i) {
+                        return (V) values[i];
+                    }
+                };
+            }
+
+            // обход без итератора
+            @Override
+            @SuppressWarnings("unchecked")
+            public void forEach(Consumer<? super V> action) {
+                for (Object value : values) {
+                    if (value != null) {
+                        action.accept((V) value);
+                    }
+                }
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public Set<Entry<Integer, V>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<Integer, V>> iterator() {
+                return new SlotIterator<>() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    Entry<Integer, V> at(int i) {
+                        return new SimpleImmutableEntry<>(keys[i], (V) values[i]);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private abstract class SlotIterator<T> implements Iterator<T> {
+        private int next = advance(0);
+
+        private int advance(int from) {
+            while (from < values.length && values[from] == null) {
+                from++;
+            }
+            return from;
+        }
+
+        abstract T at(int i);
+
+        @Override
+        public boolean hasNext() {
+            return next < values.length;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            T value = at(next);
+            next = advance(next + 1);
+            return value;
+        }
+    }
+}
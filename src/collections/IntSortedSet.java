@@ -0,0 +1,130 @@
+package collections;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.IntConsumer;
+
+// Отсортированное множество int в одном массиве.
+// id выдаются по возрастанию, поэтому добавление почти всегда дописывает в конец за O(1).
+// Значения не по порядку (загрузка, откат пакета) тоже дописываются в конец,
+// а массив сортируется один раз при следующем чтении.
+// Удалённые элементы только помечаются; массив сжимается, когда помеченных становится больше живых.
+// Обход с заданного места: бинарный поиск + O(размер страницы + помеченные).
+public class IntSortedSet {
+    private int[] values = new int[16];
+    // занятая длина массива, вместе с удалёнными
+    private int length;
+    private final BitSet removed = new BitSet();
+    private int removedCount;
+    // false - в хвосте есть значения не по порядку (возможно, повторы)
+    private boolean sorted = true;
+
+    public void add(int value) {
+        if (length > 0 && value <= values[length - 1]) {
+            if (sorted) {
+                int index = Arrays.binarySearch(values, 0, length, value);
+                if (index >= 0) {
+                    if (removed.get(index)) {
+                        removed.clear(index);
+                        removedCount--;
+                    }
+                    return;
+                }
+            }
+            sorted = false;
+        }
+        if (length == values.length) {
+            values = Arrays.copyOf(values, length * 2);
+        }
+        values[length++] = value;
+    }
+
+    public boolean remove(int value) {
+        int index = indexOf(value);
+        if (index < 0 || removed.get(index)) {
+            return false;
+        }
+        removed.set(index);
+        removedCount++;
+        if (removedCount > length - removedCount) {
+            compact();
+        }
+        return true;
+    }
+
+    public boolean contains(int value) {
+        int index = indexOf(value);
+        return index >= 0 && !removed.get(index);
+    }
+
+    public int size() {
+        ensureSorted();
+        return length - removedCount;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public void clear() {
+        length = 0;
+        removed.clear();
+        removedCount = 0;
+        sorted = true;
+    }
+
+    // Передаёт до limit элементов, больших after, по возрастанию; возвращает, сколько передано
+    public int forEachAfter(int after, int limit, IntConsumer action) {
+        int index = indexOf(after);
+        index = index >= 0 ? index + 1 : -index - 1;
+        int passed = 0;
+        for (; index < length && passed < limit; index++) {
+            if (!removed.get(index)) {
+                action.accept(values[index]);
+                passed++;
+            }
+        }
+        return passed;
+    }
+
+    // Сразу упорядочивает значения, добавленные не по порядку: после этого чтения массив не меняют
+    public void sort() {
+        ensureSorted();
+    }
+
+    private int indexOf(int value) {
+        ensureSorted();
+        return Arrays.binarySearch(values, 0, length, value);
+    }
+
+    private void ensureSorted() {
+        if (sorted) {
+            return;
+        }
+        compact();
+        Arrays.sort(values, 0, length);
+        int unique = 0;
+        for (int i = 0; i < length; i++) {
+            if (unique == 0 || values[i] != values[unique - 1]) {
+                values[unique++] = values[i];
+            }
+        }
+        length = unique;
+        sorted = true;
+    }
+
+    private void compact() {
+        if (removedCount == 0) {
+            return;
+        }
+        int live = 0;
+        for (int i = 0; i < length; i++) {
+            if (!removed.get(i)) {
+                values[live++] = values[i];
+            }
+        }
+        length = live;
+        removed.clear();
+        removedCount = 0;
+    }
+}
@@ -0,0 +1,170 @@
+package formatters;
+
+import modelling.Epic;
+import modelling.Subtask;
+import modelling.Task;
+import modelling.TaskStatus;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Чтение снимка, записанного BinarySnapshotWriter. Формат описан там же.
+public class BinarySnapshotReader {
+    private static final TaskStatus[] STATUSES = TaskStatus.values();
+
+    private final InputStream stream;
+    private final boolean withDescriptions;
+    private final List<String> strings = new ArrayList<>();
+    private byte[] record = new byte[256];
+    private int recordPosition;
+    private int recordLength;
+    // смещение в файле: текущее и начала последней записи
+    private long position;
+    private long recordOffset;
+    private long descriptionOffset;
+    private int descriptionLength;
+
+    // Поток должен быть буферизован; заголовок проверяется сразу
+    public BinarySnapshotReader(InputStream stream) throws IOException {
+        this(stream, true);
+    }
+
+    // withDescriptions = false: описания не декодируются (у задач null), их место в файле
+    // доступно через getDescriptionOffset/Length - для ленивой загрузки
+    public BinarySnapshotReader(InputStream stream, boolean withDescriptions) throws IOException {
+        this.stream = stream;
+        this.withDescriptions = withDescriptions;
+        byte[] magic = stream.readNBytes(BinarySnapshotWriter.MAGIC.length);
+        if (!isBinarySnapshot(magic)) {
+            throw new IOException("Файл не является бинарным снимком");
+        }
+        int version = stream.read();
+        if (version < 1 || version > BinarySnapshotWriter.VERSION) {
+            throw new IOException("Неподдерживаемая версия бинарного снимка: " + version);
+        }
+        position = BinarySnapshotWriter.MAGIC.length + 1;
+    }
+
+    // Место описания последней прочитанной задачи в файле (UTF-8)
+    public long getDescriptionOffset() {
+        return descriptionOffset;
+    }
+
+    public int getDescriptionLength() {
+        return descriptionLength;
+    }
+
+    public static boolean isBinarySnapshot(byte[] header) {
+        return header.length >= BinarySnapshotWriter.MAGIC.length && Arrays.equals(header, 0,
+                BinarySnapshotWriter.MAGIC.length, BinarySnapshotWriter.MAGIC, 0, BinarySnapshotWriter.MAGIC.length);
+    }
+
+    // Следующая задача или null, если записи закончились
+    public Task next() throws IOException {
+        while (true) {
+            int first = stream.read();
+            if (first == -1) {
+                return null;
+            }
+            position++;
+            int length = readVarint(first);
+            if (record.length < length) {
+                record = new byte[Math.max(length, record.length * 2)];
+            }
+            if (stream.readNBytes(record, 0, length) != length) {
+                throw new EOFException("Бинарный снимок оборван");
+            }
+            recordOffset = position;
+            position += length;
+            recordPosition = 0;
+            recordLength = length;
+
+            Task task = parseRecord();
+            if (task != null) {
+                return task;
+            }
+        }
+    }
+
+    private Task parseRecord() {
+        byte type = record[recordPosition++];
+        if (type > BinarySnapshotWriter.TYPE_SUBTASK) {
+            // служебная запись или тип из более новой версии: пропускается целиком
+            return null;
+        }
+        int id = getVarint();
+        TaskStatus taskStatus = STATUSES[record[recordPosition++]];
+        String name = getName();
+        String description = withDescriptions ? getString() : skipDescription();
+
+        Task task;
+        if (type == BinarySnapshotWriter.TYPE_SUBTASK) {
+            task = new Subtask(name, description, taskStatus, getVarint());
+        } else if (type == BinarySnapshotWriter.TYPE_EPIC) {
+            Epic epic = new Epic(name, description);
+            epic.setTaskStatus(taskStatus);
+            task = epic;
+        } else {
+            task = new Task(name, description, taskStatus);
+        }
+        task.setId(id);
+        return task;
+    }
+
+    private String getName() {
+        int reference = getVarint();
+        if (reference > 0) {
+            return strings.get(reference - 1);
+        }
+        String value = getString();
+        if (strings.size() < BinarySnapshotWriter.MAX_STRINGS) {
+            strings.add(value);
+        }
+        return value;
+    }
+
+    private String getString() {
+        int length = getVarint();
+        String value = new String(record, recordPosition, length, StandardCharsets.UTF_8);
+        recordPosition += length;
+        return value;
+    }
+
+    private String skipDescription() {
+        descriptionLength = getVarint();
+        descriptionOffset = recordOffset + recordPosition;
+        recordPosition += descriptionLength;
+        return null;
+    }
+
+    private int getVarint() {
+        int value = 0;
+        for (int shift = 0; recordPosition < recordLength; shift += 7) {
+            byte b = record[recordPosition++];
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("Оборванное число в записи бинарного снимка");
+    }
+
+    private int readVarint(int first) throws IOException {
+        int value = first & 0x7F;
+        int b = first;
+        for (int shift = 7; (b & 0x80) != 0; shift += 7) {
+            b = stream.read();
+            if (b == -1) {
+                throw new EOFException("Бинарный снимок оборван");
+            }
+            position++;
+            value |= (b & 0x7F) << shift;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,136 @@
+package formatters;
+
+import modelling.Subtask;
+import modelling.Task;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+// Бинарный снимок (версия 1):
+// заголовок: MAGIC, байт версии
+// запись: varint длины, затем тип (байт), varint id, статус (ordinal), имя, описание, [varint epicId]
+// имя: varint 0 + varint длины + UTF-8 (новая строка, получает следующий номер в таблице строк)
+//      или varint n > 0 - ссылка на n-ю строку таблицы; таблица ограничена MAX_STRINGS
+// описание: varint длины + UTF-8 (описания почти не повторяются, в таблицу не попадают)
+// запись с неизвестным типом читатель пропускает; последней идёт служебная запись TYPE_FOOTER
+// с контрольной суммой файла (пишет manager.SnapshotWriter, проверяет manager.SnapshotFiles)
+public class BinarySnapshotWriter {
+    public static final byte[] MAGIC = {'J', 'K', 'B', 'S'};
+    public static final int VERSION = 1;
+    static final int MAX_STRINGS = 64 * 1024;
+
+    static final byte TYPE_TASK = 0;
+    static final byte TYPE_EPIC = 1;
+    static final byte TYPE_SUBTASK = 2;
+    public static final byte TYPE_FOOTER = 3;
+
+    private final OutputStream stream;
+    private final Map<String, Integer> strings = new HashMap<>();
+    private byte[] out = new byte[64 * 1024];
+    private int position;
+    private byte[] record = new byte[256];
+    private int recordLength;
+
+    public BinarySnapshotWriter(OutputStream stream) {
+        this.stream = stream;
+        ensureOutCapacity(MAGIC.length + 1);
+        System.arraycopy(MAGIC, 0, out, 0, MAGIC.length);
+        position = MAGIC.length;
+        out[position++] = VERSION;
+    }
+
+    public void write(Task task) throws IOException {
+        recordLength = 0;
+        if (task instanceof Subtask) {
+            putRecordByte(TYPE_SUBTASK);
+        } else if ("Epic".equals(task.getType())) {
+            putRecordByte(TYPE_EPIC);
+        } else {
+            putRecordByte(TYPE_TASK);
+        }
+        putRecordVarint(task.getId());
+        putRecordByte((byte) task.getTaskStatus().ordinal());
+        putRecordName(task.getName());
+        putRecordString(task.getDescription());
+        if (task instanceof Subtask) {
+            putRecordVarint(((Subtask) task).getEpicId());
+        }
+
+        ensureOutCapacity(5 + recordLength);
+        position = putVarint(out, position, recordLength);
+        System.arraycopy(record, 0, out, position, recordLength);
+        position += recordLength;
+
+        if (position >= 64 * 1024) {
+            flush();
+        }
+    }
+
+    public void flush() throws IOException {
+        stream.write(out, 0, position);
+        position = 0;
+    }
+
+    private void putRecordName(String value) {
+        if (value == null) {
+            value = "";
+        }
+        Integer index = strings.get(value);
+        if (index != null) {
+            putRecordVarint(index + 1);
+            return;
+        }
+        if (strings.size() < MAX_STRINGS) {
+            strings.put(value, strings.size());
+        }
+        putRecordVarint(0);
+        putRecordString(value);
+    }
+
+    private void putRecordString(String value) {
+        byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+        putRecordVarint(bytes.length);
+        ensureRecordCapacity(bytes.length);
+        System.arraycopy(bytes, 0, record, recordLength, bytes.length);
+        recordLength += bytes.length;
+    }
+
+    private void putRecordByte(byte value) {
+        ensureRecordCapacity(1);
+        record[recordLength++] = value;
+    }
+
+    private void putRecordVarint(int value) {
+        ensureRecordCapacity(5);
+        recordLength = putVarint(record, recordLength, value);
+    }
+
+    // беззнаковый LEB128: 7 бит на байт, старший бит - признак продолжения
+    private static int putVarint(byte[] buffer, int offset, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer[offset++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[offset++] = (byte) value;
+        return offset;
+    }
+
+    private void ensureRecordCapacity(int extra) {
+        if (recordLength + extra > record.length) {
+            byte[] grown = new byte[Math.max(record.length * 2, recordLength + extra)];
+            System.arraycopy(record, 0, grown, 0, recordLength);
+            record = grown;
+        }
+    }
+
+    private void ensureOutCapacity(int extra) {
+        if (position + extra > out.length) {
+            byte[] grown = new byte[Math.max(out.length * 2, position + extra)];
+            System.arraycopy(out, 0, grown, 0, position);
+            out = grown;
+        }
+    }
+}
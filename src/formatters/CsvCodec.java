@@ -0,0 +1,382 @@
+package formatters;
+
+import modelling.Epic;
+import modelling.Subtask;
+import modelling.Task;
+import modelling.TaskStatus;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+// CSV-кодек без String.split и конкатенации строк.
+// Чтение: поля разбираются по индексам прямо из байтового буфера (UTF-8).
+// Запись: байты пишутся в переиспользуемый буфер, который сбрасывается в поток.
+// Поля с запятыми, кавычками и переводами строк заключаются в кавычки по RFC 4180.
+// Пустое поле без кавычек - null, пустая строка пишется как "".
+// Экземпляр не потокобезопасен: по одному на поток чтения/записи.
+public class CsvCodec {
+    private static final int FIELD_COUNT = 6;
+    private static final byte[] TASK = "Task".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] EPIC = "Epic".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] SUBTASK = "Subtask".getBytes(StandardCharsets.US_ASCII);
+    private static final TaskStatus[] STATUSES = TaskStatus.values();
+    private static final byte[][] STATUS_NAMES = new byte[STATUSES.length][];
+
+    static {
+        for (int i = 0; i < STATUSES.length; i++) {
+            STATUS_NAMES[i] = STATUSES[i].name().getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    private byte[] out;
+    private int position;
+
+    // границы полей последней разобранной записи
+    private final int[] fieldStart = new int[FIELD_COUNT];
+    private final int[] fieldEnd = new int[FIELD_COUNT];
+    private final boolean[] fieldQuoted = new boolean[FIELD_COUNT];
+    private byte[] unescaped = new byte[256];
+
+    public CsvCodec() {
+        this(64 * 1024);
+    }
+
+    public CsvCodec(int initialCapacity) {
+        out = new byte[initialCapacity];
+    }
+
+    // Чтение
+
+    public Task read(byte[] buffer, int offset, int length) {
+        return read(buffer, offset, length, true);
+    }
+
+    // withDescription = false: описание не декодируется (у задачи null), его границы в буфере
+    // доступны через getDescriptionStart/End - для ленивой загрузки
+    public Task read(byte[] buffer, int offset, int length, boolean withDescription) {
+        int fields = splitFields(buffer, offset, offset + length);
+        if (fields < 5) {
+            throw new IllegalArgumentException("Некорректная CSV запись: "
+                    + new String(buffer, offset, length, StandardCharsets.UTF_8));
+        }
+
+        int id = parseInt(buffer, 0);
+        String name = parseString(buffer, 2);
+        TaskStatus taskStatus = parseStatus(buffer, 3);
+        String description = withDescription ? parseString(buffer, 4) : null;
+
+        Task task;
+        if (fieldEquals(buffer, 1, SUBTASK)) {
+            // без поля эпика границы поля 5 остались бы от предыдущей записи
+            if (fields < FIELD_COUNT) {
+                throw new IllegalArgumentException("Нет эпика у подзадачи: "
+                        + new String(buffer, offset, length, StandardCharsets.UTF_8));
+            }
+            task = new Subtask(name, description, taskStatus, parseInt(buffer, 5));
+        } else if (fieldEquals(buffer, 1, EPIC)) {
+            Epic epic = new Epic(name, description);
+            epic.setTaskStatus(taskStatus);
+            task = epic;
+        } else if (fieldEquals(buffer, 1, TASK)) {
+            task = new Task(name, description, taskStatus);
+        } else {
+            throw new IllegalArgumentException("Неизвестный тип задачи: " + parseString(buffer, 1));
+        }
+        task.setId(id);
+        return task;
+    }
+
+    // Границы описания последней прочитанной записи в буфере (без обрамляющих кавычек)
+    public int getDescriptionStart() {
+        return fieldStart[4];
+    }
+
+    public int getDescriptionEnd() {
+        return fieldEnd[4];
+    }
+
+    // false - описание null (пустое поле без кавычек)
+    public boolean hasDescription() {
+        return !isNull(4);
+    }
+
+    // true - поле было в кавычках, удвоенные кавычки внутри ещё не убраны
+    public boolean isDescriptionQuoted() {
+        return fieldQuoted[4];
+    }
+
+    // Строка из байт поля, прочитанных отдельно (см. read(..., false))
+    public static String decodeField(byte[] bytes, int length, boolean quoted) {
+        if (!quoted) {
+            return new String(bytes, 0, length, StandardCharsets.UTF_8);
+        }
+        return new String(bytes, 0, unescape(bytes, 0, length, bytes), StandardCharsets.UTF_8);
+    }
+
+    // Убирает удвоенные кавычки; target может совпадать с source. Возвращает длину результата
+    private static int unescape(byte[] source, int start, int end, byte[] target) {
+        int length = 0;
+        for (int i = start; i < end; i++) {
+            target[length++] = source[i];
+            if (source[i] == '"') {
+                i++;
+            }
+        }
+        return length;
+    }
+
+    private int splitFields(byte[] buffer, int start, int end) {
+        int field = 0;
+        int i = start;
+        while (field < FIELD_COUNT) {
+            if (i < end && buffer[i] == '"') {
+                i++;
+                fieldStart[field] = i;
+                fieldQuoted[field] = true;
+                while (i < end) {
+                    if (buffer[i] == '"') {
+                        if (i + 1 < end && buffer[i + 1] == '"') {
+                            i += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    i++;
+                }
+                fieldEnd[field] = i;
+                // закрывающая кавычка
+                i++;
+            } else {
+                fieldStart[field] = i;
+                fieldQuoted[field] = false;
+                while (i < end && buffer[i] != ',') {
+                    i++;
+                }
+                fieldEnd[field] = i;
+            }
+            field++;
+            if (i >= end) {
+                break;
+            }
+            // запятая
+            i++;
+        }
+        return field;
+    }
+
+    private int parseInt(byte[] buffer, int field) {
+        int i = fieldStart[field];
+        int end = fieldEnd[field];
+        boolean negative = i < end && buffer[i] == '-';
+        if (negative) {
+            i++;
+        }
+        if (i == end) {
+            throw new NumberFormatException("Пустое числовое поле");
+        }
+        int value = 0;
+        for (; i < end; i++) {
+            int digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("Некорректное число в поле " + field);
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    private TaskStatus parseStatus(byte[] buffer, int field) {
+        for (int i = 0; i < STATUS_NAMES.length; i++) {
+            if (fieldEquals(buffer, field, STATUS_NAMES[i])) {
+                return STATUSES[i];
+            }
+        }
+        throw new IllegalArgumentException("Неизвестный статус: " + parseString(buffer, field));
+    }
+
+    private boolean fieldEquals(byte[] buffer, int field, byte[] expected) {
+        int start = fieldStart[field];
+        if (fieldEnd[field] - start != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (buffer[start + i] != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isNull(int field) {
+        return !fieldQuoted[field] && fieldStart[field] == fieldEnd[field];
+    }
+
+    private String parseString(byte[] buffer, int field) {
+        if (isNull(field)) {
+            return null;
+        }
+        int start = fieldStart[field];
+        int end = fieldEnd[field];
+        if (!fieldQuoted[field]) {
+            return new String(buffer, start, end - start, StandardCharsets.UTF_8);
+        }
+
+        if (unescaped.length < end - start) {
+            unescaped = new byte[Math.max(end - start, unescaped.length * 2)];
+        }
+        return new String(unescaped, 0, unescape(buffer, start, end, unescaped), StandardCharsets.UTF_8);
+    }
+
+    // Запись
+
+    public void writeHeader() {
+        writeAscii(CSVFormatter.getHeader());
+        newLine();
+    }
+
+    // Дописывает запись вместе с переводом строки
+    public void write(Task task) {
+        encode(task);
+        newLine();
+    }
+
+    // Дописывает запись без перевода строки
+    public void encode(Task task) {
+        writeInt(task.getId());
+        writeByte(',');
+        writeAscii(task.getType());
+        writeByte(',');
+        writeField(task.getName());
+        writeByte(',');
+        writeAscii(task.getTaskStatus().name());
+        writeByte(',');
+        writeField(task.getDescription());
+        writeByte(',');
+        if (task instanceof Subtask) {
+            writeInt(((Subtask) task).getEpicId());
+        }
+    }
+
+    public void newLine() {
+        writeByte('\n');
+    }
+
+    public int size() {
+        return position;
+    }
+
+    // Сбрасывает накопленные байты в поток и очищает буфер для повторного использования
+    public void drainTo(OutputStream stream) throws IOException {
+        stream.write(out, 0, position);
+        position = 0;
+    }
+
+    @Override
+    public String toString() {
+        return new String(out, 0, position, StandardCharsets.UTF_8);
+    }
+
+    private void writeField(String value) {
+        if (value == null) {
+            return;
+        }
+        // пустая строка в кавычках, чтобы не читалась как null
+        boolean quote = value.isEmpty();
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                quote = true;
+                break;
+            }
+        }
+
+        if (!quote) {
+            writeUtf8(value);
+            return;
+        }
+        writeByte('"');
+        writeUtf8(value);
+        writeByte('"');
+    }
+
+    // Кодирует строку в UTF-8, удваивая кавычки (в поле без кавычек их нет).
+    // Любой символ занимает не больше 3 байт (суррогатная пара - 4 байта на 2 символа)
+    private void writeUtf8(String value) {
+        ensureCapacity(value.length() * 3);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                if (c == '"') {
+                    out[position++] = '"';
+                }
+                out[position++] = (byte) c;
+            } else if (c < 0x800) {
+                out[position++] = (byte) (0xC0 | (c >> 6));
+                out[position++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                out[position++] = (byte) (0xF0 | (codePoint >> 18));
+                out[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                out[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                out[position++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                out[position++] = '?';
+            } else {
+                out[position++] = (byte) (0xE0 | (c >> 12));
+                out[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                out[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    private void writeAscii(String value) {
+        ensureCapacity(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            out[position++] = (byte) value.charAt(i);
+        }
+    }
+
+    private void writeInt(int value) {
+        ensureCapacity(11);
+        if (value < 0) {
+            out[position++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (int rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        for (int i = position + digits - 1; i >= position; i--) {
+            out[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        position += digits;
+    }
+
+    private void writeByte(char c) {
+        ensureCapacity(1);
+        out[position++] = (byte) c;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (position + extra > out.length) {
+            byte[] grown = new byte[Math.max(out.length * 2, position + extra)];
+            System.arraycopy(out, 0, grown, 0, position);
+            out = grown;
+        }
+    }
+
+    // Для одиночных записей (журнал): строка без перевода строки
+    public static String toCsvString(Task task) {
+        CsvCodec codec = new CsvCodec(128);
+        codec.encode(task);
+        return codec.toString();
+    }
+
+    public static Task fromCsvString(String record) {
+        byte[] bytes = record.getBytes(StandardCharsets.UTF_8);
+        return new CsvCodec(0).read(bytes, 0, bytes.length);
+    }
+}
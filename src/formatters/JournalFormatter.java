@@ -0,0 +1,38 @@
+package formatters;
+
+import modelling.Task;
+
+// Записи журнала изменений: одна строка на одно изменение.
+// PUT,<CSV строка сущности> | DEL,<id> | CLEAR,<тип>
+// Операция менеджера может дать несколько записей (подзадача и её эпик), поэтому
+// каждая операция завершается записью END, - без неё записи операции не применяются.
+public class JournalFormatter {
+    public static final String PUT = "PUT";
+    public static final String DELETE = "DEL";
+    public static final String CLEAR = "CLEAR";
+    public static final String END = "END";
+
+    public static String toPutRecord(Task task) {
+        return PUT + "," + CsvCodec.toCsvString(task);
+    }
+
+    public static String toDeleteRecord(int id) {
+        return DELETE + "," + id;
+    }
+
+    public static String toClearRecord(String type) {
+        return CLEAR + "," + type;
+    }
+
+    public static String toEndRecord() {
+        return END + ",";
+    }
+
+    public static String getOperation(String record) {
+        return record.substring(0, record.indexOf(','));
+    }
+
+    public static String getPayload(String record) {
+        return record.substring(record.indexOf(',') + 1);
+    }
+}
@@ -0,0 +1,150 @@
+package manager;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+// Асинхронная обёртка: сообщения кладутся в кольцевой буфер без блокировок,
+// фоновый поток передаёт их получателю (например, ConsoleDiagnosticSink).
+// - запись в буфер - один CAS; потоки-операции никогда не ждут вывода;
+// - при переполнении сообщение отбрасывается и учитывается в getDroppedCount();
+// - поток-читатель при пустом буфере засыпает на короткое время, а не ждёт сигнала,
+//   поэтому писателям не нужно его будить.
+public class AsyncDiagnosticSink implements DiagnosticSink, AutoCloseable {
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final DiagnosticSink delegate;
+    private final int mask;
+    // номер ячейки: pos - свободна для записи с номером pos, pos + 1 - заполнена записью pos
+    private final AtomicLongArray sequences;
+    private final DiagnosticLevel[] levels;
+    private final String[] messages;
+
+    // следующая позиция записи (общая для писателей)
+    private final AtomicLong tail = new AtomicLong();
+    // следующая позиция чтения (меняет только поток-читатель)
+    private volatile long head;
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final Thread consumer;
+    private volatile boolean running = true;
+
+    public AsyncDiagnosticSink(DiagnosticSink delegate) {
+        this(delegate, 8192);
+    }
+
+    // capacity округляется вверх до степени двойки
+    public AsyncDiagnosticSink(DiagnosticSink delegate, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Размер буфера должен быть положительным: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.delegate = delegate;
+        this.mask = size - 1;
+        this.sequences = new AtomicLongArray(size);
+        this.levels = new DiagnosticLevel[size];
+        this.messages = new String[size];
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+
+        consumer = new Thread(this::drainLoop, "diagnostics");
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    @Override
+    public boolean isEnabled(DiagnosticLevel level) {
+        return running && delegate.isEnabled(level);
+    }
+
+    @Override
+    public void accept(DiagnosticLevel level, String message) {
+        while (true) {
+            long pos = tail.get();
+            int index = (int) (pos & mask);
+            long diff = sequences.get(index) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    levels[index] = level;
+                    messages[index] = message;
+                    // публикация: после этой записи читатель увидит поля ячейки
+                    sequences.set(index, pos + 1);
+                    return;
+                }
+            } else if (diff < 0) {
+                // буфер заполнен: читатель ещё не освободил ячейку
+                dropped.incrementAndGet();
+                return;
+            }
+            // иначе ячейку уже занял другой писатель - пробуем следующую позицию
+        }
+    }
+
+    private void drainLoop() {
+        while (running || tail.get() != head) {
+            if (drain() == 0) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    // Передаёт получателю все опубликованные сообщения; возвращает их количество
+    private int drain() {
+        int drained = 0;
+        long pos = head;
+        while (true) {
+            int index = (int) (pos & mask);
+            if (sequences.get(index) != pos + 1) {
+                break;
+            }
+            DiagnosticLevel level = levels[index];
+            String message = messages[index];
+            levels[index] = null;
+            messages[index] = null;
+            sequences.set(index, pos + mask + 1);
+            pos++;
+            head = pos;
+            drained++;
+            try {
+                delegate.accept(level, message);
+            } catch (RuntimeException ignored) {
+                // ошибка вывода не должна останавливать поток-читатель
+            }
+        }
+        return drained;
+    }
+
+    // Ждёт, пока будут переданы все сообщения, записанные до вызова
+    public void flush() {
+        long target = tail.get();
+        while (head < target && consumer.isAlive()) {
+            LockSupport.unpark(consumer);
+            LockSupport.parkNanos(IDLE_PARK_NANOS / 10);
+        }
+    }
+
+    // Передаёт оставшиеся сообщения и останавливает поток-читатель; новые сообщения не принимаются
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(consumer);
+        try {
+            consumer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public long getPendingCount() {
+        return tail.get() - head;
+    }
+}
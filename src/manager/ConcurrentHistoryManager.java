@@ -0,0 +1,151 @@
+package manager;
+
+import modelling.Task;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+// Потокобезопасная история без общего связного списка.
+// Каждое обращение - это запись (копия задачи, номер обращения) в ConcurrentHashMap по id,
+// поэтому add и remove не блокируют друг друга для разных задач.
+// Порядок восстанавливается сортировкой по номеру только в getHistory, которая вызывается редко.
+// Номер берётся до записи в карту, поэтому записи для одного id сравниваются по номеру: более ранняя,
+// пришедшая позже, не вытесняет более позднюю. remove оставляет надгробие со своим номером -
+// иначе add, начатый до удаления, вернул бы удалённую задачу в историю.
+// При approximateOrder номер берётся из System.nanoTime() без общего счётчика:
+// обращения из разных потоков, случившиеся почти одновременно, могут поменяться местами.
+public class ConcurrentHistoryManager implements HistoryManager {
+    // Надгробие нужно, пока может прийти add с более ранним номером; через это время оно удаляется
+    private static final long TOMBSTONE_TTL_NANOS = TimeUnit.SECONDS.toNanos(10);
+    private static final int MIN_SWEEP_THRESHOLD = 1024;
+
+    private final Map<Integer, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final boolean approximateOrder;
+    // сколько надгробий (приблизительно: чистка идёт параллельно с remove) и порог следующей чистки
+    private final AtomicInteger tombstones = new AtomicInteger();
+    private volatile int sweepThreshold = MIN_SWEEP_THRESHOLD;
+
+    public ConcurrentHistoryManager() {
+        this(false);
+    }
+
+    public ConcurrentHistoryManager(boolean approximateOrder) {
+        this.approximateOrder = approximateOrder;
+    }
+
+    @Override
+    public void add(Task task) {
+        if (task == null) {
+            return;
+        }
+        Task snapshot = task.snapshot();
+        long order = nextOrder();
+        entries.compute(task.getId(), (taskId, current) -> {
+            if (current != null && current.order > order) {
+                return current;
+            }
+            if (current != null && current.task == null) {
+                tombstones.decrementAndGet();
+            }
+            return new Entry(snapshot, order, 0);
+        });
+    }
+
+    private long nextOrder() {
+        return approximateOrder ? System.nanoTime() : sequence.getAndIncrement();
+    }
+
+    // Восстановленные записи получают номера раньше всех будущих обращений
+    @Override
+    public void restore(List<? extends Task> tasks) {
+        entries.clear();
+        tombstones.set(0);
+        long order = approximateOrder ? System.nanoTime() - tasks.size() : sequence.getAndAdd(tasks.size());
+        for (Task task : tasks) {
+            if (task != null) {
+                entries.put(task.getId(), new Entry(task.snapshot(), order++, 0));
+            }
+        }
+    }
+
+    @Override
+    public void remove(int id) {
+        long order = nextOrder();
+        Entry tombstone = new Entry(null, order, System.nanoTime());
+        entries.compute(id, (taskId, current) -> {
+            if (current != null && current.order > order) {
+                return current;
+            }
+            if (current == null || current.task != null) {
+                tombstones.incrementAndGet();
+            }
+            return tombstone;
+        });
+        if (tombstones.get() >= sweepThreshold) {
+            sweepTombstones();
+        }
+    }
+
+    // Удаляет устаревшие надгробия; следующая чистка - когда их станет вдвое больше оставшихся
+    private void sweepTombstones() {
+        long now = System.nanoTime();
+        int remaining = 0;
+        for (Map.Entry<Integer, Entry> e : entries.entrySet()) {
+            Entry entry = e.getValue();
+            if (entry.task != null) {
+                continue;
+            }
+            if (now - entry.removedNanos >= TOMBSTONE_TTL_NANOS) {
+                entries.remove(e.getKey(), entry);
+            } else {
+                remaining++;
+            }
+        }
+        tombstones.set(remaining);
+        sweepThreshold = Math.max(MIN_SWEEP_THRESHOLD, remaining * 2);
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        List<Entry> snapshot = new ArrayList<>(entries.size());
+        for (Entry entry : entries.values()) {
+            if (entry.task != null) {
+                snapshot.add(entry);
+            }
+        }
+        snapshot.sort(Comparator.comparingLong(entry -> entry.order));
+
+        List<Task> historyList = new ArrayList<>(snapshot.size());
+        for (Entry entry : snapshot) {
+            historyList.add(entry.task);
+        }
+        return historyList;
+    }
+
+    // Порядок есть только после сортировки, поэтому обход идёт по getHistory()
+    @Override
+    public void forEach(Consumer<? super Task> action) {
+        getHistory().forEach(action);
+    }
+
+    // task == null - надгробие удалённой задачи
+    private static class Entry {
+        private final Task task;
+        private final long order;
+        private final long removedNanos;
+
+        private Entry(Task task, long order, long removedNanos) {
+            this.task = task;
+            this.order = order;
+            this.removedNanos = removedNanos;
+        }
+    }
+}
@@ -0,0 +1,665 @@
+package manager;
+
+import modelling.Epic;
+import modelling.Subtask;
+import modelling.Task;
+import modelling.TaskStatus;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+// Потокобезопасный менеджер для работы из нескольких потоков.
+// - id выдаются через AtomicInteger, хранилища - ConcurrentHashMap;
+// - список подзадач и статус эпика меняются только под замком "полосы" эпика,
+//   поэтому подзадачи разных эпиков изменяются параллельно;
+// - обычные изменения берут общий замок на чтение, массовые удаления и executeBatch - на запись
+//   (выполняются монопольно). Чтения замков не берут и могут видеть незавершённый пакет;
+// - история - ConcurrentHistoryManager, без общей блокировки;
+// - id каждого типа дополнительно хранятся в ConcurrentSkipListSet для постраничного обхода.
+public class ConcurrentTaskManager implements TaskManager {
+    // количество полос - степень двойки
+    private static final int STRIPES = 64;
+
+    private final AtomicInteger id = new AtomicInteger();
+    private final Map<Integer, Task> mapOfTasks = new ConcurrentHashMap<>();
+    private final Map<Integer, Epic> mapOfEpics = new ConcurrentHashMap<>();
+    private final Map<Integer, Subtask> mapOfSubtasks = new ConcurrentHashMap<>();
+    private final NavigableSet<Integer> idsOfTasks = new ConcurrentSkipListSet<>();
+    private final NavigableSet<Integer> idsOfEpics = new ConcurrentSkipListSet<>();
+    private final NavigableSet<Integer> idsOfSubtasks = new ConcurrentSkipListSet<>();
+
+    // слабо согласованные представления ConcurrentHashMap: обход не блокирует изменения
+    private final Collection<Task> tasksView = Collections.unmodifiableCollection(mapOfTasks.values());
+    private final Collection<Epic> epicsView = Collections.unmodifiableCollection(mapOfEpics.values());
+    private final Collection<Subtask> subtasksView = Collections.unmodifiableCollection(mapOfSubtasks.values());
+
+    private final HistoryManager historyManager = Managers.getConcurrentHistory();
+
+    private final ReentrantReadWriteLock structureLock = new ReentrantReadWriteLock();
+    private final ReentrantLock[] epicLocks = new ReentrantLock[STRIPES];
+
+    // Журнал отката текущего пакета; доступен только потоку, держащему замок на запись
+    private Map<Integer, BatchUndo> batchUndo;
+
+    public ConcurrentTaskManager() {
+        for (int i = 0; i < STRIPES; i++) {
+            epicLocks[i] = new ReentrantLock();
+        }
+    }
+
+    private ReentrantLock epicLock(int epicId) {
+        int hash = epicId * 0x9E3779B9;
+        return epicLocks[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+    }
+
+    private void lockShared() {
+        structureLock.readLock().lock();
+    }
+
+    private void unlockShared() {
+        structureLock.readLock().unlock();
+    }
+
+    private void lockExclusive() {
+        structureLock.writeLock().lock();
+    }
+
+    private void unlockExclusive() {
+        structureLock.writeLock().unlock();
+    }
+
+    //Пакетное выполнение: пакет выполняется монопольно и откатывается целиком при исключении
+    @Override
+    public void executeBatch(Consumer<TaskManager> batch) {
+        lockExclusive();
+        try {
+            if (batchUndo != null) {
+                // вложенный пакет становится частью внешнего
+                batch.accept(this);
+                return;
+            }
+
+            batchUndo = new LinkedHashMap<>();
+            int batchStartId = id.get();
+            boolean completed = false;
+            try {
+                batch.accept(this);
+                completed = true;
+            } finally {
+                if (completed) {
+                    forgetDeletedInBatch();
+                } else {
+                    rollbackBatch(batchStartId);
+                }
+                batchUndo = null;
+            }
+        } finally {
+            unlockExclusive();
+        }
+    }
+
+    // Запоминает состояние сущности до первого изменения внутри пакета (null - сущности не было)
+    private void rememberForRollback(int id) {
+        if (!structureLock.isWriteLockedByCurrentThread() || batchUndo == null || batchUndo.containsKey(id)) {
+            return;
+        }
+        Task previous = mapOfTasks.get(id);
+        if (previous == null) {
+            previous = mapOfEpics.get(id);
+        }
+        if (previous == null) {
+            previous = mapOfSubtasks.get(id);
+        }
+        batchUndo.put(id, previous == null ? null : new BatchUndo(previous));
+    }
+
+    // Сама сущность и её состояние до пакета: при откате в хранилище возвращается тот же объект
+    private static final class BatchUndo {
+        private final Task original;
+        private final Task state;
+
+        private BatchUndo(Task original) {
+            this.original = original;
+            this.state = original.copy();
+        }
+    }
+
+    // Внутри пакета удалённые задачи убираются из истории только при фиксации,
+    // поэтому откат историю не меняет
+    private void forgetViewed(int id) {
+        if (batchUndo == null || !structureLock.isWriteLockedByCurrentThread()) {
+            historyManager.remove(id);
+        }
+    }
+
+    private void forgetDeletedInBatch() {
+        for (int changedId : batchUndo.keySet()) {
+            if (!mapOfTasks.containsKey(changedId) && !mapOfEpics.containsKey(changedId)
+                    && !mapOfSubtasks.containsKey(changedId)) {
+                historyManager.remove(changedId);
+            }
+        }
+    }
+
+    private void rollbackBatch(int batchStartId) {
+        for (Map.Entry<Integer, BatchUndo> e : batchUndo.entrySet()) {
+            int changedId = e.getKey();
+            mapOfTasks.remove(changedId);
+            mapOfEpics.remove(changedId);
+            mapOfSubtasks.remove(changedId);
+            idsOfTasks.remove(changedId);
+            idsOfEpics.remove(changedId);
+            idsOfSubtasks.remove(changedId);
+
+            BatchUndo undo = e.getValue();
+            Task previous = null;
+            if (undo != null) {
+                previous = undo.original;
+                previous.restoreFrom(undo.state);
+            } else {
+                // id созданной в пакете задачи будет выдан снова: её просмотры из истории убираются
+                historyManager.remove(changedId);
+            }
+            if (previous instanceof Epic) {
+                mapOfEpics.put(changedId, (Epic) previous);
+                idsOfEpics.add(changedId);
+            } else if (previous instanceof Subtask) {
+                mapOfSubtasks.put(changedId, (Subtask) previous);
+                idsOfSubtasks.add(changedId);
+            } else if (previous != null) {
+                mapOfTasks.put(changedId, previous);
+                idsOfTasks.add(changedId);
+            }
+        }
+        id.set(batchStartId);
+    }
+
+    //Task methods
+    @Override
+    public List<Task> getAllTasks() {
+        List<Task> tasks = inIdOrder(idsOfTasks, mapOfTasks);
+        for (Task task : tasks) {
+            historyManager.add(task);
+        }
+        return tasks;
+    }
+
+    @Override
+    public void clearAllTasks() {
+        lockExclusive();
+        try {
+            for (int taskId : mapOfTasks.keySet()) {
+                rememberForRollback(taskId);
+                forgetViewed(taskId);
+            }
+            mapOfTasks.clear();
+            idsOfTasks.clear();
+        } finally {
+            unlockExclusive();
+        }
+    }
+
+    @Override
+    public Task getTask(int id) {
+        Task task = mapOfTasks.get(id);
+        if (task != null) {
+            historyManager.add(task);
+        }
+        return task;
+    }
+
+    @Override
+    public Task createTask(Task task) {
+        lockShared();
+        try {
+            task.setId(id.getAndIncrement());
+            rememberForRollback(task.getId());
+            mapOfTasks.put(task.getId(), task);
+            idsOfTasks.add(task.getId());
+            return task;
+        } finally {
+            unlockShared();
+        }
+    }
+
+    @Override
+    public boolean updateTask(int id, Task updatedTask) {
+        lockShared();
+        try {
+            if (!mapOfTasks.containsKey(id)) {
+                return false;
+            }
+            rememberForRollback(id);
+            updatedTask.setId(id);
+            return mapOfTasks.replace(id, updatedTask) != null;
+        } finally {
+            unlockShared();
+        }
+    }
+
+    @Override
+    public void deleteTask(int id) {
+        lockShared();
+        try {
+            rememberForRollback(id);
+            if (mapOfTasks.remove(id) != null) {
+                idsOfTasks.remove(id);
+                forgetViewed(id);
+            }
+        } finally {
+            unlockShared();
+        }
+    }
+
+    //Epic methods
+    @Override
+    public List<Epic> getAllEpics() {
+        List<Epic> epics = inIdOrder(idsOfEpics, mapOfEpics);
+        for (Epic epic : epics) {
+            addEpicToHistory(epic);
+        }
+        return epics;
+    }
+
+    // копия эпика в истории читает список подзадач, который меняется под замком полосы
+    private void addEpicToHistory(Epic epic) {
+        ReentrantLock lock = epicLock(epic.getId());
+        lock.lock();
+        try {
+            historyManager.add(epic);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void clearAllEpics() {
+        lockExclusive();
+        try {
+            for (int subtaskId : mapOfSubtasks.keySet()) {
+                rememberForRollback(subtaskId);
+                forgetViewed(subtaskId);
+            }
+            for (int epicId : mapOfEpics.keySet()) {
+                rememberForRollback(epicId);
+                forgetViewed(epicId);
+            }
+            mapOfSubtasks.clear();
+            mapOfEpics.clear();
+            idsOfSubtasks.clear();
+            idsOfEpics.clear();
+        } finally {
+            unlockExclusive();
+        }
+    }
+
+    @Override
+    public Epic getEpic(int id) {
+        Epic epic = mapOfEpics.get(id);
+        if (epic != null) {
+            addEpicToHistory(epic);
+        }
+        return epic;
+    }
+
+    @Override
+    public Epic createEpic(Epic epic) {
+        lockShared();
+        try {
+            epic.setId(id.getAndIncrement());
+            rememberForRollback(epic.getId());
+            mapOfEpics.put(epic.getId(), epic);
+            idsOfEpics.add(epic.getId());
+            return epic;
+        } finally {
+            unlockShared();
+        }
+    }
+
+    @Override
+    public boolean updateEpic(int epicId, String name, String description) {
+        lockShared();
+        ReentrantLock lock = epicLock(epicId);
+        lock.lock();
+        try {
+            Epic epic = mapOfEpics.get(epicId);
+            if (epic == null) {
+                return false;
+            }
+            rememberForRollback(epicId);
+            epic.setName(name);
+            epic.setDescription(description);
+            return true;
+        } finally {
+            lock.unlock();
+            unlockShared();
+        }
+    }
+
+    @Override
+    public boolean updateEpic(Epic epic) {
+        // как и в InMemoryTaskManager, описание заменяется именем
+        return updateEpic(epic.getId(), epic.getName(), epic.getName());
+    }
+
+    @Override
+    public void deleteEpic(int id) {
+        lockShared();
+        ReentrantLock lock = epicLock(id);
+        lock.lock();
+        try {
+            Epic epic = mapOfEpics.get(id);
+            if (epic == null) {
+                return;
+            }
+            for (int subtaskId : epic.getSubtaskIds()) {
+                rememberForRollback(subtaskId);
+                mapOfSubtasks.remove(subtaskId);
+                idsOfSubtasks.remove(subtaskId);
+                forgetViewed(subtaskId);
+            }
+            rememberForRollback(id);
+            mapOfEpics.remove(id);
+            idsOfEpics.remove(id);
+            forgetViewed(id);
+        } finally {
+            lock.unlock();
+            unlockShared();
+        }
+    }
+
+    @Override
+    public List<Subtask> getAllEpicSubtasks(int epicId) {
+        Epic epic = mapOfEpics.get(epicId);
+        if (epic == null) {
+            return new ArrayList<>();
+        }
+        List<Integer> subtaskIds;
+        ReentrantLock lock = epicLock(epicId);
+        lock.lock();
+        try {
+            subtaskIds = epic.getSubtaskIds();
+        } finally {
+            lock.unlock();
+        }
+
+        List<Subtask> subtasks = new ArrayList<>(subtaskIds.size());
+        for (int subtaskId : subtaskIds) {
+            Subtask subtask = getSubtask(subtaskId);
+            if (subtask != null) {
+                subtasks.add(subtask);
+            }
+        }
+        return subtasks;
+    }
+
+    // Вызывается под замком полосы эпика
+    private void updateEpicStatus(Epic epic) {
+        TaskStatus status = epic.calculateStatus();
+        if (epic.getTaskStatus() != status) {
+            epic.setTaskStatus(status);
+        }
+    }
+
+    //Subtask methods
+    @Override
+    public void clearAllSubtasks() {
+        lockExclusive();
+        try {
+            for (int subtaskId : mapOfSubtasks.keySet()) {
+                rememberForRollback(subtaskId);
+                forgetViewed(subtaskId);
+            }
+            for (Epic epic : mapOfEpics.values()) {
+                rememberForRollback(epic.getId());
+                epic.removeAllSubtasks();
+                epic.setTaskStatus(TaskStatus.NEW);
+            }
+            mapOfSubtasks.clear();
+            idsOfSubtasks.clear();
+        } finally {
+            unlockExclusive();
+        }
+    }
+
+    @Override
+    public Subtask getSubtask(int subTaskId) {
+        Subtask subtask = mapOfSubtasks.get(subTaskId);
+        if (subtask != null) {
+            historyManager.add(subtask);
+        }
+        return subtask;
+    }
+
+    @Override
+    public List<Subtask> getAllSubtasks() {
+        List<Subtask> subtasks = inIdOrder(idsOfSubtasks, mapOfSubtasks);
+        for (Subtask subtask : subtasks) {
+            historyManager.add(subtask);
+        }
+        return subtasks;
+    }
+
+    @Override
+    public Subtask createSubtask(Subtask subtask) {
+        int epicId = subtask.getEpicId();
+        lockShared();
+        ReentrantLock lock = epicLock(epicId);
+        lock.lock();
+        try {
+            Epic epic = mapOfEpics.get(epicId);
+            if (epic == null) {
+                return null;
+            }
+            subtask.setId(id.getAndIncrement());
+            rememberForRollback(subtask.getId());
+            rememberForRollback(epicId);
+            mapOfSubtasks.put(subtask.getId(), subtask);
+            idsOfSubtasks.add(subtask.getId());
+            epic.addSubtaskId(subtask.getId(), subtask.getTaskStatus());
+            updateEpicStatus(epic);
+            return subtask;
+        } finally {
+            lock.unlock();
+            unlockShared();
+        }
+    }
+
+    @Override
+    public boolean updateSubtask(Subtask subtask) {
+        int epicId = subtask.getEpicId();
+        lockShared();
+        ReentrantLock lock = epicLock(epicId);
+        lock.lock();
+        try {
+            Subtask current = mapOfSubtasks.get(subtask.getId());
+            Epic epic = mapOfEpics.get(epicId);
+            if (current == null || current.getEpicId() != epicId || epic == null) {
+                return false;
+            }
+            rememberForRollback(subtask.getId());
+            rememberForRollback(epicId);
+            mapOfSubtasks.put(subtask.getId(), subtask);
+            epic.updateSubtaskStatus(subtask.getId(), subtask.getTaskStatus());
+            updateEpicStatus(epic);
+            return true;
+        } finally {
+            lock.unlock();
+            unlockShared();
+        }
+    }
+
+    @Override
+    public boolean deleteSubtask(int index) {
+        Subtask subtask = mapOfSubtasks.get(index);
+        if (subtask == null) {
+            return false;
+        }
+        int epicId = subtask.getEpicId();
+        lockShared();
+        ReentrantLock lock = epicLock(epicId);
+        lock.lock();
+        try {
+            // подзадачу могли удалить, пока ждали замок
+            if (!mapOfSubtasks.containsKey(index)) {
+                return false;
+            }
+            rememberForRollback(index);
+            rememberForRollback(epicId);
+            mapOfSubtasks.remove(index);
+            idsOfSubtasks.remove(index);
+            forgetViewed(index);
+            Epic epic = mapOfEpics.get(epicId);
+            if (epic != null) {
+                epic.removeSubtaskId(index);
+                updateEpicStatus(epic);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+            unlockShared();
+        }
+    }
+
+    @Override
+    public List<Task> getHistoryManager() {
+        return historyManager.getHistory();
+    }
+
+    //Запросы без записи в историю
+    @Override
+    public Task peekTask(int id) {
+        return mapOfTasks.get(id);
+    }
+
+    @Override
+    public Epic peekEpic(int id) {
+        return mapOfEpics.get(id);
+    }
+
+    @Override
+    public Subtask peekSubtask(int id) {
+        return mapOfSubtasks.get(id);
+    }
+
+    @Override
+    public List<Task> listTasks() {
+        return inIdOrder(idsOfTasks, mapOfTasks);
+    }
+
+    @Override
+    public List<Epic> listEpics() {
+        return inIdOrder(idsOfEpics, mapOfEpics);
+    }
+
+    @Override
+    public List<Subtask> listSubtasks() {
+        return inIdOrder(idsOfSubtasks, mapOfSubtasks);
+    }
+
+    //Постраничный обход по возрастанию id; сущности, удалённые во время обхода, пропускаются
+    @Override
+    public List<Task> listTasks(int afterId, int limit) {
+        return page(idsOfTasks, mapOfTasks, afterId, limit);
+    }
+
+    @Override
+    public List<Epic> listEpics(int afterId, int limit) {
+        return page(idsOfEpics, mapOfEpics, afterId, limit);
+    }
+
+    @Override
+    public List<Subtask> listSubtasks(int afterId, int limit) {
+        return page(idsOfSubtasks, mapOfSubtasks, afterId, limit);
+    }
+
+    // Порядок обхода ConcurrentHashMap не определён, полные списки, как и страницы, идут по возрастанию id
+    private static <T extends Task> List<T> inIdOrder(NavigableSet<Integer> ids, Map<Integer, T> store) {
+        return page(ids, store, Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    private static <T extends Task> List<T> page(NavigableSet<Integer> ids, Map<Integer, T> store, int afterId, int limit) {
+        List<T> page = new ArrayList<>();
+        if (limit <= 0) {
+            return page;
+        }
+        for (int entityId : ids.tailSet(afterId, false)) {
+            T entity = store.get(entityId);
+            if (entity != null) {
+                page.add(entity);
+                if (page.size() == limit) {
+                    break;
+                }
+            }
+        }
+        return page;
+    }
+
+    @Override
+    public List<Subtask> listEpicSubtasks(int epicId) {
+        List<Subtask> subtasks = new ArrayList<>();
+        Epic epic = mapOfEpics.get(epicId);
+        if (epic == null) {
+            return subtasks;
+        }
+        ReentrantLock lock = epicLock(epicId);
+        lock.lock();
+        try {
+            epic.forEachSubtaskId(subtaskId -> {
+                Subtask subtask = mapOfSubtasks.get(subtaskId);
+                if (subtask != null) {
+                    subtasks.add(subtask);
+                }
+            });
+        } finally {
+            lock.unlock();
+        }
+        return subtasks;
+    }
+
+    @Override
+    public List<Task> scan(Predicate<? super Task> filter) {
+        List<Task> found = new ArrayList<>();
+        Consumer<Task> collector = task -> {
+            if (filter.test(task)) {
+                found.add(task);
+            }
+        };
+        mapOfTasks.values().forEach(collector);
+        mapOfEpics.values().forEach(collector);
+        mapOfSubtasks.values().forEach(collector);
+        return found;
+    }
+
+    @Override
+    public Collection<Task> getTasksView() {
+        return tasksView;
+    }
+
+    @Override
+    public Collection<Epic> getEpicsView() {
+        return epicsView;
+    }
+
+    @Override
+    public Collection<Subtask> getSubtasksView() {
+        return subtasksView;
+    }
+
+    @Override
+    public void forEachInHistory(Consumer<? super Task> action) {
+        historyManager.forEach(action);
+    }
+}
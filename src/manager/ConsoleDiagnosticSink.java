@@ -0,0 +1,31 @@
+package manager;
+
+import java.io.PrintStream;
+
+// Синхронный вывод в поток (System.out): каждая запись берёт замок потока.
+// Для многопоточной работы его стоит обернуть в AsyncDiagnosticSink
+public class ConsoleDiagnosticSink implements DiagnosticSink {
+    private final PrintStream out;
+    private final DiagnosticLevel minLevel;
+
+    public ConsoleDiagnosticSink() {
+        this(System.out, DiagnosticLevel.DEBUG);
+    }
+
+    public ConsoleDiagnosticSink(PrintStream out, DiagnosticLevel minLevel) {
+        this.out = out;
+        this.minLevel = minLevel;
+    }
+
+    @Override
+    public boolean isEnabled(DiagnosticLevel level) {
+        return level.compareTo(minLevel) >= 0;
+    }
+
+    @Override
+    public void accept(DiagnosticLevel level, String message) {
+        if (isEnabled(level)) {
+            out.println(level + " " + message);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package manager;
+
+public enum DescriptionLoading {
+    // описания читаются в память при загрузке
+    EAGER,
+    // в памяти только место описания в снимке (отображённом в память); строка декодируется при каждом обращении
+    LAZY,
+    // как LAZY, но декодированная строка запоминается через SoftReference и освобождается при нехватке памяти
+    LAZY_CACHED
+}
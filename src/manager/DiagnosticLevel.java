@@ -0,0 +1,10 @@
+package manager;
+
+public enum DiagnosticLevel {
+    // подробности работы (например, пустые списки)
+    DEBUG,
+    // обычные события: создание, массовое удаление
+    INFO,
+    // запрос не выполнен: сущность не найдена, не совпадает эпик и т.п.
+    WARN
+}
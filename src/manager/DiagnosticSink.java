@@ -0,0 +1,24 @@
+package manager;
+
+// Получатель диагностических сообщений менеджера.
+// Вызывается на пути каждой операции, поэтому не должен блокироваться надолго;
+// перед построением сообщения менеджер проверяет isEnabled.
+public interface DiagnosticSink {
+    // ничего не выводит; используется по умолчанию
+    DiagnosticSink SILENT = new DiagnosticSink() {
+        @Override
+        public boolean isEnabled(DiagnosticLevel level) {
+            return false;
+        }
+
+        @Override
+        public void accept(DiagnosticLevel level, String message) {
+        }
+    };
+
+    default boolean isEnabled(DiagnosticLevel level) {
+        return true;
+    }
+
+    void accept(DiagnosticLevel level, String message);
+}
@@ -0,0 +1,11 @@
+package manager;
+
+public enum DurabilityPolicy {
+    // каждое изменение записывается и сбрасывается на диск (fsync) сразу
+    PER_OPERATION,
+    // изменения копятся и записываются одним fsync раз в N мс или каждые N операций
+    GROUP_COMMIT,
+    // журнал пишется без fsync, когда данные попадут на диск решает ОС; снимок всё равно
+    // сбрасывается перед переименованием, не сбрасывается только каталог
+    OS_BUFFERED
+}
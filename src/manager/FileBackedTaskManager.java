@@ -1,86 +1,155 @@
 package manager;
 
 import exceptions.ManagerSaveException;
-import formatters.CSVFormatter;
+import formatters.CsvCodec;
+import formatters.JournalFormatter;
 import modelling.Epic;
 import modelling.Subtask;
 import modelling.Task;
 
 import java.io.*;
-import java.nio.file.Files;
-
-public class FileBackedTaskManager extends InMemoryTaskManager {
-
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+public class FileBackedTaskManager extends InMemoryTaskManager implements AutoCloseable {
     private final File file;
+    private final File journalFile;
+    // порядок истории просмотров (HistoryFile)
+    private final File historyFile;
+    private final PersistenceSettings settings;
+    // журнал открыт только в режимах PersistenceMode.JOURNAL и ASYNC
+    private TaskJournal journal;
+    // фоновая запись журнала, только в режиме ASYNC; задаётся при создании менеджера и больше не меняется,
+    // volatile - для flush() и awaitDurable(), которые читают его без замка
+    private volatile PersistencePipeline pipeline;
+    // сегменты снимка и изменённые с последнего сохранения, только в режиме SEGMENTED
+    private SegmentedSnapshot segments;
+    private boolean journalFilesExist;
+    // файл истории от прежней доски (конструктор FileBackedTaskManager(File)): как и снимок, он остаётся
+    // на месте до первого сохранения и заменяется вместе со снимком
+    private boolean staleHistory;
+    private ExecutorService compactionExecutor;
+    private Future<?> compaction;
+    private final PersistenceMetrics metrics = new PersistenceMetrics();
+    // для GROUP_COMMIT в режиме SNAPSHOT: сколько изменений ещё не сохранено и с какого момента
+    private int pendingSaves;
+    private long firstPendingSaveNanos;
+    // сохраняет накопленное, если после пачки изменений новых не было (см. flushScheduled)
+    private ScheduledExecutorService groupCommitExecutor;
+    private LoadStatistics lastLoadStatistics;
+    // буфер записи снимка и сегментов (SnapshotWriter), один на менеджер; выделяется при первом сохранении
+    // под замком менеджера. Записи снимка не пересекаются: сохранение сначала дожидается фонового сжатия
+    private ByteBuffer snapshotBuffer;
 
     @Override
-    public void clearAllEpics() {
+    public synchronized void clearAllEpics() {
         super.clearAllEpics();
-        save();
+        persist();
     }
 
     @Override
-    public Epic createEpic(Epic epic) {
+    public synchronized Epic createEpic(Epic epic) {
         Epic created = super.createEpic(epic);
-        save();
+        persist();
         return created;
     }
 
     @Override
-    public boolean updateEpic(int epicId, String name, String description) {
+    public synchronized boolean updateEpic(int epicId, String name, String description) {
         boolean updated = super.updateEpic(epicId, name, description);
-        save();
+        persist();
         return updated;
     }
 
     @Override
-    public boolean updateEpic(Epic epic) {
+    public synchronized boolean updateEpic(Epic epic) {
         boolean updated = super.updateEpic(epic);
-        save();
+        persist();
         return updated;
     }
 
     @Override
-    public void deleteEpic(int id) {
+    public synchronized void deleteEpic(int id) {
         super.deleteEpic(id);
-        save();
+        persist();
     }
 
     @Override
-    public void clearAllSubtasks() {
+    public synchronized void clearAllSubtasks() {
         super.clearAllSubtasks();
-        save();
+        persist();
     }
 
     @Override
-    public Subtask createSubtask(Subtask subtask) {
+    public synchronized Subtask createSubtask(Subtask subtask) {
         Subtask created = super.createSubtask(subtask);
-        save();
+        persist();
         return created;
     }
 
     @Override
-    public boolean updateSubtask(Subtask subtask) {
+    public synchronized boolean updateSubtask(Subtask subtask) {
         boolean updated = super.updateSubtask(subtask);
-        save();
+        persist();
         return updated;
     }
 
     @Override
-    public boolean deleteSubtask(int index) {
+    public synchronized boolean deleteSubtask(int index) {
         boolean deleted = super.deleteSubtask(index);
-        save();
+        persist();
         return deleted;
     }
 
     public FileBackedTaskManager(File file) {
+        this(file, new PersistenceSettings());
+        staleHistory = historyFile.exists();
+    }
+
+    // Новая доска с заданными настройками. Начальный снимок пишется уже после конструктора:
+    // save() переопределяем и не должен вызываться для недостроенного объекта
+    public static FileBackedTaskManager create(File file, PersistenceSettings settings) {
+        FileBackedTaskManager taskManager = new FileBackedTaskManager(file, settings);
+        // История прежней доски к новой не относится
+        if (taskManager.historyFile.exists() && !taskManager.historyFile.delete()) {
+            taskManager.diagnose(DiagnosticLevel.WARN,
+                    "Не удалось удалить файл истории: " + taskManager.historyFile.getPath());
+        }
+        // Новая доска в режиме журнала: старые снимок и журнал не должны проигрываться при загрузке
+        if (isJournaled(settings)) {
+            taskManager.journal = new TaskJournal(taskManager.journalFile, settings, taskManager.metrics,
+                    taskManager::diagnose);
+            taskManager.save();
+            taskManager.startPipeline();
+        }
+        // То же для сегментов: манифест новой доски пуст, файлы прежней удаляются
+        if (settings.getMode() == PersistenceMode.SEGMENTED) {
+            taskManager.segments = new SegmentedSnapshot(file, settings.getSegmentSize(), taskManager::diagnose);
+            taskManager.segments.deleteUnreferenced();
+            taskManager.save();
+        }
+        return taskManager;
+    }
+
+    private FileBackedTaskManager(File file, PersistenceSettings settings) {
         this.file = file;
+        this.settings = settings;
+        this.journalFile = new File(file.getPath() + ".journal");
+        this.historyFile = new File(file.getPath() + ".history");
 
         File parent = file.getParentFile();
         if (parent != null && !parent.exists()) {
             boolean created = parent.mkdirs();
             if (!created) {
-                System.err.println("Не удалось создать директорию: " + parent.getPath());
+                diagnoseDefault("Не удалось создать директорию: " + parent.getPath());
             }
         }
 
@@ -89,7 +158,7 @@ public class FileBackedTaskManager extends InMemoryTaskManager {
             if (!file.exists()) {
                 boolean created = file.createNewFile();
                 if (!created) {
-                    System.err.println("Не удалось создать файл: " + file.getPath());
+                    diagnoseDefault("Не удалось создать файл: " + file.getPath());
                 }
             }
         } catch (IOException e) {
@@ -97,114 +166,577 @@ public class FileBackedTaskManager extends InMemoryTaskManager {
         }
     }
 
+    // Для конструктора: переопределяемый diagnose() до его конца вызывать нельзя, а setDiagnosticSink
+    // ещё не вызван - сообщение идёт в приёмник по умолчанию, как и у только что созданного менеджера
+    private static void diagnoseDefault(String message) {
+        DiagnosticSink diagnostics = Managers.getDefaultDiagnosticSink();
+        if (diagnostics.isEnabled(DiagnosticLevel.WARN)) {
+            diagnostics.accept(DiagnosticLevel.WARN, message);
+        }
+    }
+
+    private static boolean isJournaled(PersistenceSettings settings) {
+        return settings.getMode() == PersistenceMode.JOURNAL || settings.getMode() == PersistenceMode.ASYNC;
+    }
+
+    private void startPipeline() {
+        if (settings.getMode() == PersistenceMode.ASYNC) {
+            pipeline = new PersistencePipeline(journal, settings, metrics);
+            metrics.attach(pipeline);
+        }
+    }
+
     public static FileBackedTaskManager loadFromFile(File file) {
-        FileBackedTaskManager taskManager = new FileBackedTaskManager(file);
-        String fileContent;
-        int maxId = -1;
+        return loadFromFile(file, new PersistenceSettings());
+    }
 
+    public static FileBackedTaskManager loadFromFile(File file, PersistenceSettings settings) {
+        FileBackedTaskManager taskManager = new FileBackedTaskManager(file, settings);
+        long start = System.nanoTime();
+        // [0] - максимальный id, [1] - количество записей
+        long[] counters = {-1, 0};
+        long bytes;
+        SnapshotFiles.TaskHandler loader = task -> {
+            counters[1]++;
+            counters[0] = Math.max(counters[0], task.getId());
+            taskManager.putLoaded(task);
+        };
+        SegmentedSnapshot loadedSegments = null;
+
+        // Большой CSV снимок разбирается параллельно по кускам, остальные - потоково
+        // через буфер фиксированного размера. Подзадачи связываются с эпиками вторым проходом.
         try {
-            fileContent = Files.readString(file.toPath());
+            // повреждённый снимок не загружаем вовсе, иначе часть доски молча пропадёт
+            SnapshotFiles.verifyChecksum(file);
+            DescriptionLoading descriptionLoading = settings.getDescriptionLoading();
+            if (SegmentedSnapshot.isManifest(file)) {
+                loadedSegments = SegmentedSnapshot.read(file, taskManager::diagnose);
+                bytes = loadedSegments.forEach(loader, descriptionLoading);
+            } else if (descriptionLoading != DescriptionLoading.EAGER) {
+                bytes = SnapshotFiles.forEachLazy(file, loader,
+                        descriptionLoading == DescriptionLoading.LAZY_CACHED, settings.getLoadParallelism());
+            } else if (useParallelLoad(file, settings)) {
+                bytes = file.length();
+                for (List<Task> chunk : ParallelSnapshotLoader.load(file, settings.getLoadParallelism())) {
+                    for (Task task : chunk) {
+                        loader.accept(task);
+                    }
+                }
+            } else {
+                bytes = SnapshotFiles.forEach(file, loader);
+            }
         } catch (IOException exception) {
             throw new ManagerSaveException("Ошибка при чтении файла: " + file.getName(), exception);
         }
 
-        String[] lines = fileContent.split(System.lineSeparator());
+        // Изменения, сделанные после последнего снимка
+        boolean replayed = TaskJournal.replay(taskManager.journalFile, record -> {
+            counters[0] = Math.max(counters[0], taskManager.applyJournalRecord(record));
+            counters[1]++;
+        }, taskManager::diagnose);
+        if (replayed) {
+            taskManager.journalFilesExist = true;
+        }
+        taskManager.relinkSubtasks();
+        taskManager.rebuildIndexes();
+        taskManager.restoreHistory();
+
+        taskManager.id = (int) counters[0] + 1;
+        taskManager.lastLoadStatistics = new LoadStatistics(bytes, counters[1], System.nanoTime() - start);
+
+        if (isJournaled(settings)) {
+            taskManager.journalFilesExist = true;
+            taskManager.journal = new TaskJournal(taskManager.journalFile, settings, taskManager.metrics,
+                    taskManager::diagnose);
+            taskManager.startPipeline();
+        }
 
-        for (int i = 1; i < lines.length; i++) {
-            String line = lines[i];
-            if (line.isEmpty()) {
-                continue;
+        if (settings.getMode() == PersistenceMode.SEGMENTED) {
+            if (loadedSegments == null) {
+                // доска из обычного снимка: первое сохранение разложит её по сегментам целиком
+                loadedSegments = new SegmentedSnapshot(file, settings.getSegmentSize(), taskManager::diagnose);
+                taskManager.markAllDirty(loadedSegments);
             }
+            loadedSegments.deleteUnreferenced();
+            taskManager.segments = loadedSegments;
+        } else if (loadedSegments != null) {
+            // доска из сегментов, открытая в другом режиме, сразу переписывается одним снимком
+            taskManager.save();
+            loadedSegments.deleteFiles();
+        }
 
-            Task task = CSVFormatter.fromString(line);
-            int currentId = task.getId();
+        return taskManager;
+    }
 
-            if (currentId > maxId) {
-                maxId = currentId;
+    // История восстанавливается одним проходом, без getTask на каждую запись;
+    // id, которых на доске уже нет, пропускаются
+    private void restoreHistory() {
+        int[] ids = HistoryFile.read(historyFile, this::diagnose);
+        List<Task> tasks = new ArrayList<>(ids.length);
+        for (int historyId : ids) {
+            Task task = mapOfTasks.get(historyId);
+            if (task == null) {
+                task = mapOfEpics.get(historyId);
+            }
+            if (task == null) {
+                task = mapOfSubtasks.get(historyId);
+            }
+            if (task != null) {
+                tasks.add(task);
             }
+        }
+        historyManager.restore(tasks);
+    }
+
+    private void saveHistory() {
+        try {
+            HistoryFile.write(historyFile, historyManager, this::diagnose);
+        } catch (IOException exception) {
+            throw new ManagerSaveException("Не удалось сохранить историю просмотров", exception);
+        }
+    }
+
+    private void markAllDirty(SegmentedSnapshot snapshot) {
+        Consumer<Task> marker = task -> snapshot.markDirty(task.getType(), task.getId());
+        mapOfTasks.values().forEach(marker);
+        mapOfEpics.values().forEach(marker);
+        mapOfSubtasks.values().forEach(marker);
+    }
 
-            switch (task.getType()) {
-                case "Task":
-                    taskManager.mapOfTasks.put(currentId, task);
-                    break;
-                case "Epic":
-                    taskManager.mapOfEpics.put(currentId, (Epic) task);
-                    break;
-                case "Subtask":
-                    Subtask subtask = (Subtask) task;
-                    taskManager.mapOfSubtasks.put(currentId, subtask);
-                    Epic parentEpic = taskManager.mapOfEpics.get(subtask.getEpicId());
-                    if (parentEpic != null) {
-                        parentEpic.addSubtaskId(currentId);
-                    } else {
-                        System.err.println("Ошибка: Subtask " + currentId + " относится к несуществующему эпику " + subtask.getEpicId());
+    private void putLoaded(Task task) {
+        int currentId = task.getId();
+        switch (task.getType()) {
+            case "Task":
+                mapOfTasks.put(currentId, task);
+                break;
+            case "Epic":
+                mapOfEpics.put(currentId, (Epic) task);
+                break;
+            case "Subtask":
+                mapOfSubtasks.put(currentId, (Subtask) task);
+                break;
+        }
+    }
+
+    private static boolean useParallelLoad(File file, PersistenceSettings settings) throws IOException {
+        return settings.getLoadParallelism() > 1
+                && file.length() >= settings.getParallelLoadThresholdBytes()
+                && !SnapshotFiles.isBinary(file);
+    }
+
+    public LoadStatistics getLastLoadStatistics() {
+        return lastLoadStatistics;
+    }
+
+    // Применяет одну запись журнала, возвращает id затронутой сущности (или -1)
+    private int applyJournalRecord(String record) {
+        try {
+            String payload = JournalFormatter.getPayload(record);
+            switch (JournalFormatter.getOperation(record)) {
+                case JournalFormatter.PUT:
+                    Task task = CsvCodec.fromCsvString(payload);
+                    switch (task.getType()) {
+                        case "Task":
+                            mapOfTasks.put(task.getId(), task);
+                            break;
+                        case "Epic":
+                            mapOfEpics.put(task.getId(), (Epic) task);
+                            break;
+                        case "Subtask":
+                            mapOfSubtasks.put(task.getId(), (Subtask) task);
+                            break;
                     }
-                    break;
+                    return task.getId();
+                case JournalFormatter.DELETE:
+                    int removedId = Integer.parseInt(payload);
+                    mapOfTasks.remove(removedId);
+                    mapOfEpics.remove(removedId);
+                    mapOfSubtasks.remove(removedId);
+                    return removedId;
+                case JournalFormatter.CLEAR:
+                    switch (payload) {
+                        case "Task":
+                            mapOfTasks.clear();
+                            break;
+                        case "Epic":
+                            mapOfEpics.clear();
+                            break;
+                        case "Subtask":
+                            mapOfSubtasks.clear();
+                            break;
+                    }
+                    return -1;
+                default:
+                    diagnose(DiagnosticLevel.WARN, "Неизвестная запись журнала: " + record);
+                    return -1;
             }
+        } catch (RuntimeException exception) {
+            // запись завершённой операции, которую не удалось разобрать (например, повреждённая на диске)
+            diagnose(DiagnosticLevel.WARN, "Пропущена повреждённая запись журнала: " + record);
+            return -1;
         }
+    }
 
-        taskManager.id = maxId + 1;
-
-        return taskManager;
+    // Эпики из снимка и журнала приходят без списка подзадач: восстанавливаем связи по самим подзадачам.
+    // Статус эпика тоже пересчитывается: сохранённый мог отстать от подзадач
+    private void relinkSubtasks() {
+        for (Epic epic : mapOfEpics.values()) {
+            epic.removeAllSubtasks();
+        }
+        for (Subtask subtask : mapOfSubtasks.values()) {
+            Epic parentEpic = mapOfEpics.get(subtask.getEpicId());
+            if (parentEpic != null) {
+                parentEpic.addSubtaskId(subtask.getId(), subtask.getTaskStatus());
+            } else {
+                diagnose(DiagnosticLevel.WARN, "Ошибка: Subtask " + subtask.getId()
+                        + " относится к несуществующему эпику " + subtask.getEpicId());
+            }
+        }
+        for (Epic epic : mapOfEpics.values()) {
+            epic.setTaskStatus(epic.calculateStatus());
+        }
     }
 
     @Override
-    public Task createTask(Task task) {
+    public synchronized Task createTask(Task task) {
         Task created = super.createTask(task);
-        save();
+        persist();
         return created;
     }
 
     @Override
-    public boolean updateTask(int id, Task updatedTask) {
+    public synchronized boolean updateTask(int id, Task updatedTask) {
         boolean updated = super.updateTask(id, updatedTask);
-        save();
+        persist();
         return updated;
     }
 
     @Override
-    public void deleteTask(int id) {
+    public synchronized void deleteTask(int id) {
         super.deleteTask(id);
-        save();
+        persist();
     }
 
     @Override
-    public void clearAllTasks() {
+    public synchronized void clearAllTasks() {
         super.clearAllTasks();
-        save();
+        persist();
+    }
+
+    @Override
+    protected void onSaved(Task task) {
+        if (pipeline != null) {
+            pipeline.put(task);
+        } else if (journal != null) {
+            journal.append(JournalFormatter.toPutRecord(task));
+        } else if (segments != null) {
+            segments.markDirty(task.getType(), task.getId());
+        }
     }
 
-    public void save() {
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(file))) {
-            // 1. Заголовок
-            bw.write(CSVFormatter.getHeader());
-            bw.newLine();
+    @Override
+    protected void onRemoved(String type, int id) {
+        if (pipeline != null) {
+            pipeline.delete(id);
+        } else if (journal != null) {
+            journal.append(JournalFormatter.toDeleteRecord(id));
+        } else if (segments != null) {
+            segments.markDirty(type, id);
+        }
+    }
 
-            // 2. Тело
-            // 2.1. Tasks
-            for (Task task : getAllTasks()) {
-                bw.write(CSVFormatter.toCSVString(task));
-                bw.newLine();
-            }
+    @Override
+    protected void onCleared(String type) {
+        if (pipeline != null) {
+            pipeline.clear(type);
+        } else if (journal != null) {
+            journal.append(JournalFormatter.toClearRecord(type));
+        } else if (segments != null) {
+            segments.markDirty(type);
+        }
+    }
 
-            // 2.2. Epics
-            if (!mapOfEpics.isEmpty()) {
-                for (Epic epic : getAllEpics()) {
-                    bw.write(CSVFormatter.toCSVString(epic));
-                    bw.newLine();
-                }
+    // Весь пакет сохраняется одной записью после фиксации; при откате на диск ничего не попадает
+    @Override
+    public synchronized void executeBatch(Consumer<TaskManager> batch) {
+        super.executeBatch(batch);
+        persist();
+    }
+
+    private void persist() {
+        if (isInBatch()) {
+            return;
+        }
+        if (pipeline != null) {
+            pipeline.endOperation();
+            compactIfNeeded();
+            return;
+        }
+        if (journal != null) {
+            journal.endOperation();
+            compactIfNeeded();
+            return;
+        }
+
+        // В режиме снимка сохраняем по счётчику и времени. Чтобы изменения, после которых новых
+        // не было, не ждали следующей операции, с первым из них ставится сохранение по таймеру
+        if (pendingSaves == 0) {
+            firstPendingSaveNanos = System.nanoTime();
+            if (settings.getDurabilityPolicy() == DurabilityPolicy.GROUP_COMMIT) {
+                scheduleFlush();
             }
+        }
+        pendingSaves++;
+        if (settings.getDurabilityPolicy() != DurabilityPolicy.GROUP_COMMIT
+                || pendingSaves >= settings.getGroupCommitMaxOperations()
+                || System.nanoTime() - firstPendingSaveNanos
+                >= TimeUnit.MILLISECONDS.toNanos(settings.getGroupCommitIntervalMillis())) {
+            // история просмотров не пишется на каждое изменение - только при save() и close()
+            saveState(false);
+        }
+    }
 
-            // 2.3. Subtasks
-            if (!mapOfSubtasks.isEmpty()) {
-                for (Subtask subtask : getAllSubtasks()) {
-                    bw.write(CSVFormatter.toCSVString(subtask));
-                    bw.newLine();
-                }
+    private void scheduleFlush() {
+        if (groupCommitExecutor == null) {
+            groupCommitExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "snapshot-group-commit");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        groupCommitExecutor.schedule(this::flushScheduled, settings.getGroupCommitIntervalMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    // Снимок читает карты, которые меняет вызывающий поток, поэтому сохранение по таймеру берёт тот же
+    // замок, что и все изменяющие методы. История просмотров здесь не пишется: её меняют и чтения,
+    // которые идут без замка; она сохранится при следующем save() или close()
+    private synchronized void flushScheduled() {
+        // изменения уже сохранены по счётчику или вручную; у новой пачки свой таймер
+        if (pendingSaves == 0 || System.nanoTime() - firstPendingSaveNanos
+                < TimeUnit.MILLISECONDS.toNanos(settings.getGroupCommitIntervalMillis())) {
+            return;
+        }
+        try {
+            saveState(false);
+        } catch (ManagerSaveException exception) {
+            diagnose(DiagnosticLevel.WARN, "Ошибка при групповом сохранении: " + exception.getMessage());
+        }
+    }
+
+    // Принудительно сохраняет всё, что накопилось при GROUP_COMMIT или в очереди ASYNC.
+    // Очередь ASYNC ждём без замка менеджера: иначе на время ожидания остановились бы все изменения
+    public void flush() {
+        PersistencePipeline asyncPipeline = pipeline;
+        if (asyncPipeline != null) {
+            asyncPipeline.awaitDurable();
+        } else {
+            flushPending();
+        }
+    }
+
+    private synchronized void flushPending() {
+        if (journal != null) {
+            journal.commit();
+        } else if (pendingSaves > 0) {
+            save();
+        }
+    }
+
+    // Ждёт, пока на диск попадут все уже выполненные операции.
+    // В режиме ASYNC не блокирует новые изменения из других вызовов; в остальных режимах - то же, что flush()
+    public void awaitDurable() {
+        flush();
+    }
+
+    // То же с ограничением времени; false - не дождались
+    public boolean awaitDurable(long timeout, TimeUnit unit) {
+        PersistencePipeline asyncPipeline = pipeline;
+        if (asyncPipeline != null) {
+            return asyncPipeline.awaitDurable(timeout, unit);
+        }
+        flushPending();
+        return true;
+    }
+
+    public PersistenceMetrics getPersistenceMetrics() {
+        return metrics;
+    }
+
+    private void compactIfNeeded() {
+        if (journal.size() < settings.getCompactionThresholdBytes()) {
+            return;
+        }
+        if (compaction != null && !compaction.isDone()) {
+            return;
+        }
+        if (pipeline != null) {
+            // снимок и поворот журнала должны идти после всего, что уже стоит в очереди
+            pipeline.awaitDurable();
+        }
+        if (TaskJournal.rotatedFileFor(journalFile).exists()) {
+            // предыдущее сжатие не завершилось: сворачиваем всё синхронно
+            save();
+            return;
+        }
+
+        // Строки снимка готовятся здесь, а запись на диск идёт в фоне,
+        // пока новые изменения пишутся в новый журнал
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        try {
+            encodeSnapshot(content);
+        } catch (IOException exception) {
+            throw new ManagerSaveException("Не удалось подготовить снимок", exception);
+        }
+        File rotated = journal.rotate();
+        ByteBuffer buffer = snapshotBuffer();
+        compaction = compactionExecutor().submit(() -> {
+            writeSnapshot(content::writeTo, buffer);
+            if (!rotated.delete()) {
+                diagnose(DiagnosticLevel.WARN, "Не удалось удалить свёрнутый журнал: " + rotated.getPath());
             }
+        });
+    }
+
+    private ExecutorService compactionExecutor() {
+        if (compactionExecutor == null) {
+            compactionExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "journal-compaction");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return compactionExecutor;
+    }
+
+    private void awaitCompaction() {
+        if (compaction == null) {
+            return;
+        }
+        try {
+            compaction.get();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException exception) {
+            diagnose(DiagnosticLevel.WARN, "Ошибка при сжатии журнала: " + exception.getCause().getMessage());
+        }
+        compaction = null;
+    }
+
+    // Дожидается фонового сжатия, сохраняет историю просмотров и закрывает журнал
+    @Override
+    public synchronized void close() {
+        flush();
+        awaitCompaction();
+        saveHistory();
+        if (pipeline != null) {
+            pipeline.close();
+        }
+        if (journal != null) {
+            journal.close();
+        }
+        if (compactionExecutor != null) {
+            compactionExecutor.shutdown();
+        }
+        if (groupCommitExecutor != null) {
+            // всё уже сохранено flush(), отложенные сохранения не нужны
+            groupCommitExecutor.shutdownNow();
+        }
+    }
+
+    // Снимок вместе с историей просмотров
+    public synchronized void save() {
+        saveState(true);
+    }
+
+    private void saveState(boolean withHistory) {
+        if (pipeline != null) {
+            // иначе старые изменения из очереди попадут в журнал уже после нового снимка
+            pipeline.awaitDurable();
+        }
+        awaitCompaction();
+        long start = System.nanoTime();
+        if (segments != null) {
+            writeSegments();
+        } else {
+            writeSnapshot(this::encodeSnapshot, snapshotBuffer());
+        }
+        // история - не часть снимка: иначе каждое сохранение переписывало бы её целиком
+        if (withHistory || staleHistory) {
+            saveHistory();
+            staleHistory = false;
+        }
+        if (journal == null) {
+            metrics.recordFlush(pendingSaves, System.nanoTime() - start);
+            pendingSaves = 0;
+        }
+
+        // Снимок содержит всё состояние, журнал больше не нужен
+        if (journal != null) {
+            journal.reset();
+        } else if (journalFilesExist) {
+            TaskJournal.deleteFiles(journalFile);
+            journalFilesExist = false;
+        }
+    }
+
+    // Только изменившиеся сегменты и манифест
+    private void writeSegments() {
+        try {
+            segments.save(this::listSegment, settings.getSnapshotFormat(),
+                    settings.getDurabilityPolicy() != DurabilityPolicy.OS_BUFFERED, snapshotBuffer());
+        } catch (IOException exception) {
+            diagnose(DiagnosticLevel.WARN, "Ошибка при сохранении состояния: " + exception.getMessage());
+            throw new ManagerSaveException("Не удалось сохранить", exception);
+        }
+    }
+
+    private ByteBuffer snapshotBuffer() {
+        if (snapshotBuffer == null) {
+            snapshotBuffer = SnapshotWriter.allocateBuffer();
+        }
+        return snapshotBuffer;
+    }
+
+    private List<? extends Task> listSegment(String type, int afterId, int limit) {
+        switch (type) {
+            case "Task":
+                return listTasks(afterId, limit);
+            case "Epic":
+                return listEpics(afterId, limit);
+            default:
+                return listSubtasks(afterId, limit);
+        }
+    }
+
+    private void encodeSnapshot(OutputStream out) throws IOException {
+        SnapshotFiles.SnapshotSink sink = SnapshotFiles.openSink(out, settings.getSnapshotFormat());
+        // эпики обязательно раньше своих подзадач
+        for (Task task : mapOfTasks.values()) {
+            sink.write(task);
+        }
+        for (Epic epic : mapOfEpics.values()) {
+            sink.write(epic);
+        }
+        for (Subtask subtask : mapOfSubtasks.values()) {
+            sink.write(subtask);
+        }
+        sink.finish();
+    }
+
+    private interface SnapshotContent {
+        void writeTo(OutputStream out) throws IOException;
+    }
 
+    // Пишем во временный файл с контрольной суммой и переименовываем, чтобы снимок не оказался недописанным
+    private void writeSnapshot(SnapshotContent content, ByteBuffer buffer) {
+        boolean sync = settings.getDurabilityPolicy() != DurabilityPolicy.OS_BUFFERED;
+        try (SnapshotWriter out = new SnapshotWriter(file, settings.getSnapshotFormat(), sync, buffer,
+                this::diagnose)) {
+            content.writeTo(out);
+            out.commit();
         } catch (IOException exception) {
-            System.err.println("Ошибка при сохранении состояния: " + exception.getMessage());
+            diagnose(DiagnosticLevel.WARN, "Ошибка при сохранении состояния: " + exception.getMessage());
             throw new ManagerSaveException("Не удалось сохранить", exception);
         }
     }
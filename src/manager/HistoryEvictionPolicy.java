@@ -0,0 +1,8 @@
+package manager;
+
+public enum HistoryEvictionPolicy {
+    // вытесняются записи, к которым дольше всего не обращались
+    LRU,
+    // вытесняются записи старше заданного окна времени (и, при переполнении, самые старые)
+    TIME_WINDOW
+}
@@ -0,0 +1,81 @@
+package manager;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+// История просмотров рядом со снимком: id от давнего обращения к недавнему одной строкой
+//   #history
+//   12,5,40
+// Файл пишется атомарно и с контрольной суммой через SnapshotWriter, который сбрасывает его на диск,
+// поэтому менеджер пишет историю только при явном save() и close(), а не на каждое изменение.
+// История - вспомогательные данные: отсутствующий или повреждённый файл означает пустую историю, а не ошибку загрузки.
+// Об отсутствующем файле (новая доска) не сообщается, о повреждённом - через DiagnosticSink.
+class HistoryFile {
+    private static final String HEADER = "#history\n";
+
+    private HistoryFile() {
+
+    }
+
+    static void write(File file, HistoryManager history, DiagnosticSink diagnostics) throws IOException {
+        StringBuilder content = new StringBuilder(HEADER);
+        boolean[] firstId = {true};
+        history.forEach(task -> {
+            if (!firstId[0]) {
+                content.append(',');
+            }
+            firstId[0] = false;
+            content.append(task.getId());
+        });
+        content.append('\n');
+        SnapshotWriter.write(file, content.toString().getBytes(StandardCharsets.US_ASCII), false, diagnostics);
+    }
+
+    static int[] read(File file, DiagnosticSink diagnostics) {
+        if (!file.exists()) {
+            return new int[0];
+        }
+        try {
+            if (!SnapshotFiles.verifyChecksum(file)) {
+                throw new IOException("нет контрольной суммы");
+            }
+            byte[] bytes = Files.readAllBytes(file.toPath());
+            if (bytes.length < HEADER.length()
+                    || !new String(bytes, 0, HEADER.length(), StandardCharsets.US_ASCII).equals(HEADER)) {
+                throw new IOException("файл не является историей");
+            }
+            int[] ids = new int[16];
+            int count = 0;
+            int value = -1;
+            // строка с id - вторая; разбираем байты без промежуточных строк
+            for (int i = HEADER.length(); i < bytes.length && bytes[i] != '\n'; i++) {
+                byte b = bytes[i];
+                if (b == ',') {
+                    if (count == ids.length) {
+                        ids = Arrays.copyOf(ids, count * 2);
+                    }
+                    ids[count++] = value;
+                    value = -1;
+                } else if (b >= '0' && b <= '9') {
+                    value = (value < 0 ? 0 : value * 10) + (b - '0');
+                } else {
+                    throw new IOException("неожиданный символ в истории: " + (char) b);
+                }
+            }
+            if (value >= 0) {
+                if (count == ids.length) {
+                    ids = Arrays.copyOf(ids, count + 1);
+                }
+                ids[count++] = value;
+            }
+            return Arrays.copyOf(ids, count);
+        } catch (IOException exception) {
+            diagnostics.accept(DiagnosticLevel.WARN,
+                    "История просмотров не загружена (" + file.getName() + "): " + exception.getMessage());
+            return new int[0];
+        }
+    }
+}
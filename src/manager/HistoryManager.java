@@ -3,6 +3,7 @@ package manager;
 import modelling.Task;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface HistoryManager {
     void add(Task task);
@@ -10,4 +11,12 @@ public interface HistoryManager {
     void remove(int id);
 
     List<Task> getHistory();
+
+    // Обход истории от старых обращений к новым без создания списка.
+    // Передаются сохранённые в истории копии: изменять их нельзя
+    void forEach(Consumer<? super Task> action);
+
+    // Заменяет историю задачами в порядке от старых обращений к новым (например, при загрузке доски).
+    // Проходит список один раз; все записи считаются сделанными в момент восстановления
+    void restore(List<? extends Task> tasks);
 }
@@ -0,0 +1,44 @@
+package manager;
+
+import java.time.Clock;
+
+public class HistorySettings {
+    // 0 - без ограничения размера
+    private int maxSize = 0;
+    private HistoryEvictionPolicy evictionPolicy = HistoryEvictionPolicy.LRU;
+    // для TIME_WINDOW: сколько хранится запись после последнего обращения
+    private long timeWindowMillis = 60 * 60 * 1000;
+    private Clock clock = Clock.systemUTC();
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public HistoryEvictionPolicy getEvictionPolicy() {
+        return evictionPolicy;
+    }
+
+    public void setEvictionPolicy(HistoryEvictionPolicy evictionPolicy) {
+        this.evictionPolicy = evictionPolicy;
+    }
+
+    public long getTimeWindowMillis() {
+        return timeWindowMillis;
+    }
+
+    public void setTimeWindowMillis(long timeWindowMillis) {
+        this.timeWindowMillis = timeWindowMillis;
+    }
+
+    public Clock getClock() {
+        return clock;
+    }
+
+    public void setClock(Clock clock) {
+        this.clock = clock;
+    }
+}
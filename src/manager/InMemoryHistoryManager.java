@@ -3,11 +3,21 @@ package manager;
 import modelling.Task;
 
 import java.util.*;
+import java.util.function.Consumer;
 
 public class InMemoryHistoryManager implements HistoryManager {
     protected Map<Integer, Node> nodes = new HashMap<>();
     Node first;
     Node last;
+    private final HistorySettings settings;
+
+    public InMemoryHistoryManager() {
+        this(new HistorySettings());
+    }
+
+    public InMemoryHistoryManager(HistorySettings settings) {
+        this.settings = settings;
+    }
 
     @Override
     public void add(Task task) {
@@ -15,6 +25,21 @@ public class InMemoryHistoryManager implements HistoryManager {
             remove(task.getId());
         }
         linkLast(task);
+        evict();
+    }
+
+    // Узлы идут от давнего обращения к недавнему, поэтому вытесняется всегда начало списка
+    private void evict() {
+        if (settings.getEvictionPolicy() == HistoryEvictionPolicy.TIME_WINDOW) {
+            long oldestAllowed = settings.getClock().millis() - settings.getTimeWindowMillis();
+            while (first != null && first.accessedAt < oldestAllowed) {
+                remove(first.value.getId());
+            }
+        }
+        int maxSize = settings.getMaxSize();
+        while (maxSize > 0 && nodes.size() > maxSize) {
+            remove(first.value.getId());
+        }
     }
 
     @Override
@@ -38,10 +63,25 @@ public class InMemoryHistoryManager implements HistoryManager {
         }
     }
 
+    @Override
+    public void restore(List<? extends Task> tasks) {
+        nodes = new HashMap<>(Math.max(16, tasks.size() * 4 / 3 + 1));
+        first = null;
+        last = null;
+        for (Task task : tasks) {
+            if (task != null && !nodes.containsKey(task.getId())) {
+                linkLast(task);
+            }
+        }
+        // ограничения проверяются один раз в конце, а не на каждой записи
+        evict();
+    }
+
     public void linkLast(Task task) {
         if (task == null) return;
 
-        Node node = new Node(task.copy(), last, null);
+        Node node = new Node(task.snapshot(), last, null);
+        node.accessedAt = settings.getClock().millis();
 
         if (first == null) {
             first = node;
@@ -58,6 +98,7 @@ public class InMemoryHistoryManager implements HistoryManager {
 
     @Override
     public List<Task> getHistory() {
+        evict();
         List<Task> historyList = new ArrayList<>();
         Node curr = first;
 
@@ -69,10 +110,19 @@ public class InMemoryHistoryManager implements HistoryManager {
         return historyList;
     }
 
+    @Override
+    public void forEach(Consumer<? super Task> action) {
+        evict();
+        for (Node curr = first; curr != null; curr = curr.next) {
+            action.accept(curr.value);
+        }
+    }
+
     public static class Node {
         private Task value;
         private Node prev;
         private Node next;
+        private long accessedAt;
 
         public Node(Task value, Node prev, Node next) {
             this.value = value;
@@ -1,34 +1,288 @@
 package manager;
 
+import collections.IntObjectHashMap;
 import modelling.Epic;
 import modelling.Subtask;
 import modelling.Task;
 import modelling.TaskStatus;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 public class InMemoryTaskManager implements TaskManager {
     protected int id = 0;
-    protected Map<Integer, Task> mapOfTasks = new HashMap<>();
-    protected Map<Integer, Epic> mapOfEpics = new HashMap<>();
-    protected Map<Integer, Subtask> mapOfSubtasks = new HashMap<>();
+    // int-ключи без упаковки в Integer
+    protected IntObjectHashMap<Task> mapOfTasks = new IntObjectHashMap<>();
+    protected IntObjectHashMap<Epic> mapOfEpics = new IntObjectHashMap<>();
+    protected IntObjectHashMap<Subtask> mapOfSubtasks = new IntObjectHashMap<>();
+
+    // представления создаются один раз и отражают текущее содержимое хранилищ
+    private final Collection<Task> tasksView = Collections.unmodifiableCollection(mapOfTasks.values());
+    private final Collection<Epic> epicsView = Collections.unmodifiableCollection(mapOfEpics.values());
+    private final Collection<Subtask> subtasksView = Collections.unmodifiableCollection(mapOfSubtasks.values());
 
     protected final HistoryManager historyManager = Managers.getDefaultHistory();
+    private DiagnosticSink diagnostics = Managers.getDefaultDiagnosticSink();
+
+    // id по типу и статусу, обновляется вместе с хранилищами
+    private final StatusIndex statusIndex = new StatusIndex();
+    // полнотекстовый индекс по имени и описанию
+    private final TextIndex textIndex = new TextIndex();
+    // true - индекс не построен (после загрузки из файла) и будет построен при первом поиске:
+    // иначе загрузка читала бы каждое описание, даже если поиском никто не пользуется
+    private boolean textIndexPending;
+
+    // Состояние текущего пакета (executeBatch)
+    private int batchDepth;
+    private int batchStartId;
+    private final Map<Integer, BatchUndo> batchUndo = new LinkedHashMap<>();
+    private final Set<Integer> batchEpics = new LinkedHashSet<>();
+
+    public void setDiagnosticSink(DiagnosticSink diagnostics) {
+        this.diagnostics = diagnostics;
+    }
+
+    // Сообщение строится, только если уровень включён
+    protected void diagnose(DiagnosticLevel level, String message) {
+        if (diagnostics.isEnabled(level)) {
+            diagnostics.accept(level, message);
+        }
+    }
+
+    private void diagnose(DiagnosticLevel level, String type, int id, String event) {
+        if (diagnostics.isEnabled(level)) {
+            diagnostics.accept(level, type + "[" + id + "] " + event);
+        }
+    }
 
     // And possibly a method to directly add a task with its ID
     public void addLoadedTask(Task task) {
         mapOfTasks.put(task.getId(), task);
+        statusIndex.put(task);
+        indexText(task);
     }
 
     public void addLoadedEpic(Epic epic) {
         mapOfEpics.put(epic.getId(), epic);
+        statusIndex.put(epic);
+        indexText(epic);
     }
 
     public void addLoadedSubtask(Subtask subtask) {
         mapOfSubtasks.put(subtask.getId(), subtask);
+        statusIndex.put(subtask);
+        indexText(subtask);
+    }
+
+    // Для наследников, заполняющих хранилища напрямую (загрузка из файла)
+    protected void rebuildIndexes() {
+        statusIndex.clear();
+        Consumer<Task> indexer = statusIndex::put;
+        mapOfTasks.values().forEach(indexer);
+        mapOfEpics.values().forEach(indexer);
+        mapOfSubtasks.values().forEach(indexer);
+        statusIndex.sortIds();
+        textIndex.clear();
+        textIndexPending = true;
+    }
+
+    private void indexText(Task task) {
+        if (!textIndexPending) {
+            textIndex.put(task);
+        }
+    }
+
+    private void unindexText(int id) {
+        if (!textIndexPending) {
+            textIndex.remove(id);
+        }
+    }
+
+    private void ensureTextIndex() {
+        if (!textIndexPending) {
+            return;
+        }
+        Consumer<Task> indexer = textIndex::put;
+        mapOfTasks.values().forEach(indexer);
+        mapOfEpics.values().forEach(indexer);
+        mapOfSubtasks.values().forEach(indexer);
+        textIndexPending = false;
+    }
+
+    // Точки расширения для наследников (например, журнала FileBackedTaskManager):
+    // вызываются сразу после изменения хранилища
+    protected void onSaved(Task task) {
+    }
+
+    protected void onRemoved(String type, int id) {
+    }
+
+    protected void onCleared(String type) {
+    }
+
+    // Внутри пакета хуки не вызываются: изменения копятся и передаются наследнику при фиксации.
+    // Индексы обновляются сразу
+    private void saved(Task task) {
+        statusIndex.put(task);
+        indexText(task);
+        if (batchDepth == 0) {
+            onSaved(task);
+        }
+    }
+
+    private void removed(String type, int id) {
+        statusIndex.remove(id);
+        unindexText(id);
+        if (batchDepth == 0) {
+            onRemoved(type, id);
+        }
+    }
+
+    private void cleared(String type) {
+        statusIndex.forEach(type, this::unindexText);
+        statusIndex.clear(type);
+        if (batchDepth == 0) {
+            onCleared(type);
+        }
+    }
+
+    //Пакетное выполнение: все изменения применяются целиком или откатываются,
+    //статус каждого затронутого эпика пересчитывается один раз при фиксации
+    @Override
+    public void executeBatch(Consumer<TaskManager> batch) {
+        if (batchDepth > 0) {
+            // вложенный пакет становится частью внешнего
+            batch.accept(this);
+            return;
+        }
+
+        batchDepth++;
+        batchStartId = id;
+        // откат при любом незавершённом пакете, в том числе при Error:
+        // иначе менеджер навсегда остался бы внутри пакета и перестал сохранять изменения
+        boolean completed = false;
+        try {
+            batch.accept(this);
+            completed = true;
+        } finally {
+            batchDepth--;
+            if (!completed) {
+                rollbackBatch();
+            }
+        }
+        commitBatch();
+    }
+
+    protected boolean isInBatch() {
+        return batchDepth > 0;
+    }
+
+    // Запоминает состояние сущности до первого изменения внутри пакета (null - сущности не было)
+    private void rememberForRollback(int id) {
+        if (batchDepth == 0 || batchUndo.containsKey(id)) {
+            return;
+        }
+        Task previous = mapOfTasks.get(id);
+        if (previous == null) {
+            previous = mapOfEpics.get(id);
+        }
+        if (previous == null) {
+            previous = mapOfSubtasks.get(id);
+        }
+        batchUndo.put(id, previous == null ? null : new BatchUndo(previous));
+    }
+
+    // Сама сущность и её состояние до пакета: при откате в хранилище возвращается тот же объект
+    private static final class BatchUndo {
+        private final Task original;
+        private final Task state;
+
+        private BatchUndo(Task original) {
+            this.original = original;
+            this.state = original.copy();
+        }
+    }
+
+    // Внутри пакета удалённые задачи убираются из истории только при фиксации,
+    // поэтому откат историю не меняет
+    private void forgetViewed(int id) {
+        if (batchDepth == 0) {
+            historyManager.remove(id);
+        }
+    }
+
+    private void commitBatch() {
+        for (int epicId : batchEpics) {
+            if (mapOfEpics.containsKey(epicId)) {
+                updateEpicStatus(epicId);
+            }
+        }
+        for (int changedId : batchUndo.keySet()) {
+            Task current = mapOfTasks.get(changedId);
+            if (current == null) {
+                current = mapOfEpics.get(changedId);
+            }
+            if (current == null) {
+                current = mapOfSubtasks.get(changedId);
+            }
+            BatchUndo undo = batchUndo.get(changedId);
+            if (current != null) {
+                // статусы эпиков пересчитаны только сейчас
+                statusIndex.put(current);
+                onSaved(current);
+                continue;
+            }
+            historyManager.remove(changedId);
+            if (undo != null) {
+                // созданное и удалённое внутри пакета наследник не видел
+                onRemoved(undo.original.getType(), changedId);
+            }
+        }
+        batchUndo.clear();
+        batchEpics.clear();
+    }
+
+    private void rollbackBatch() {
+        for (Map.Entry<Integer, BatchUndo> e : batchUndo.entrySet()) {
+            int changedId = e.getKey();
+            mapOfTasks.remove(changedId);
+            mapOfEpics.remove(changedId);
+            mapOfSubtasks.remove(changedId);
+            statusIndex.remove(changedId);
+            unindexText(changedId);
+
+            BatchUndo undo = e.getValue();
+            Task previous = null;
+            if (undo != null) {
+                previous = undo.original;
+                previous.restoreFrom(undo.state);
+                statusIndex.put(previous);
+                indexText(previous);
+            } else {
+                // id созданной в пакете задачи будет выдан снова: её просмотры из истории убираются
+                historyManager.remove(changedId);
+            }
+            if (previous instanceof Epic) {
+                mapOfEpics.put(changedId, (Epic) previous);
+            } else if (previous instanceof Subtask) {
+                mapOfSubtasks.put(changedId, (Subtask) previous);
+            } else if (previous != null) {
+                mapOfTasks.put(changedId, previous);
+            }
+        }
+        statusIndex.sortIds();
+        id = batchStartId;
+        batchUndo.clear();
+        batchEpics.clear();
     }
 
     //Task methods
@@ -36,28 +290,30 @@ public class InMemoryTaskManager implements TaskManager {
     @Override
     public ArrayList<Task> getAllTasks() {
         if (mapOfTasks.isEmpty()) {
-            System.out.println("No tasks currently.");
-            System.out.println("=".repeat(50));
+            diagnose(DiagnosticLevel.DEBUG, "No tasks currently.");
             return new ArrayList<>();
         }
 
-        for (Map.Entry<Integer, Task> e : mapOfTasks.entrySet()) {
-            historyManager.add(e.getValue());
+        ArrayList<Task> all = inIdOrder("Task", mapOfTasks, Integer.MIN_VALUE, Integer.MAX_VALUE);
+        for (Task entity : all) {
+            historyManager.add(entity);
         }
-
-        return new ArrayList<>(mapOfTasks.values());
+        return all;
     }
 
     //Удаление всех задач.
     @Override
     public void clearAllTasks() {
+        for (int taskId : mapOfTasks.keySet()) {
+            rememberForRollback(taskId);
+        }
         // Удалить все из истории при массовом удалении задач
         for (Map.Entry<Integer, Task> e : mapOfTasks.entrySet()) {
-            historyManager.remove(e.getKey());
+            forgetViewed(e.getKey());
         }
         mapOfTasks.clear();
-        System.out.println("All of the tasks were deleted");
-        System.out.println("=".repeat(50));
+        cleared("Task");
+        diagnose(DiagnosticLevel.INFO, "All of the tasks were deleted");
     }
 
     //Получение по идентификатору.
@@ -73,8 +329,10 @@ public class InMemoryTaskManager implements TaskManager {
     @Override
     public Task createTask(Task task) {
         task.setId(generateId());
+        rememberForRollback(task.getId());
         mapOfTasks.put(task.getId(), task);
-        System.out.println("Task[" + task.getId() + "] created");
+        saved(task);
+        diagnose(DiagnosticLevel.INFO, "Task", task.getId(), "created");
         return task;
     }
 
@@ -82,9 +340,14 @@ public class InMemoryTaskManager implements TaskManager {
     @Override
     public boolean updateTask(int id, Task updatedTask) {
         if (mapOfTasks.containsKey(id)) {
+            rememberForRollback(id);
+            // новая версия хранится под тем же id, иначе индексы и файл получили бы id из объекта
+            updatedTask.setId(id);
             mapOfTasks.put(id, updatedTask);
+            saved(updatedTask);
+            return true;
         } else {
-            System.out.println("There is no such task with such id.");
+            diagnose(DiagnosticLevel.WARN, "There is no such task with such id.");
         }
         return false;
     }
@@ -93,10 +356,12 @@ public class InMemoryTaskManager implements TaskManager {
     @Override
     public void deleteTask(int id) {
         if (mapOfTasks.containsKey(id)) {
+            rememberForRollback(id);
             mapOfTasks.remove(id);
-            historyManager.remove(id);
+            forgetViewed(id);
+            removed("Task", id);
         } else {
-            System.out.println("Such a task with such id does not exist.");
+            diagnose(DiagnosticLevel.WARN, "Such a task with such id does not exist.");
         }
     }
 
@@ -106,32 +371,39 @@ public class InMemoryTaskManager implements TaskManager {
     @Override
     public ArrayList<Epic> getAllEpics() {
         if (mapOfEpics.isEmpty()) {
-            System.out.println("No epics currently.");
-            System.out.println("=".repeat(50));
+            diagnose(DiagnosticLevel.DEBUG, "No epics currently.");
             return new ArrayList<>();
         }
 
-        for (Map.Entry<Integer, Epic> e : mapOfEpics.entrySet()) {
-            historyManager.add(e.getValue());
+        ArrayList<Epic> all = inIdOrder("Epic", mapOfEpics, Integer.MIN_VALUE, Integer.MAX_VALUE);
+        for (Epic entity : all) {
+            historyManager.add(entity);
         }
-
-        return new ArrayList<>(mapOfEpics.values());
+        return all;
     }
 
     //Удаление всех задач.
     //deleting an epic also triggers deleting its subtasks
     @Override
     public void clearAllEpics() {
+        for (int subtaskId : mapOfSubtasks.keySet()) {
+            rememberForRollback(subtaskId);
+        }
+        for (int epicId : mapOfEpics.keySet()) {
+            rememberForRollback(epicId);
+        }
         // Удалить все из истории при массовом удалении задач
         for (Map.Entry<Integer, Subtask> e : mapOfSubtasks.entrySet()) {
-            historyManager.remove(e.getKey());
+            forgetViewed(e.getKey());
         }
         for (Map.Entry<Integer, Epic> e : mapOfEpics.entrySet()) {
-            historyManager.remove(e.getKey());
+            forgetViewed(e.getKey());
         }
 
         mapOfSubtasks.clear();
         mapOfEpics.clear();
+        cleared("Subtask");
+        cleared("Epic");
     }
 
     //Получение по идентификатору.
@@ -149,8 +421,10 @@ public class InMemoryTaskManager implements TaskManager {
     public Epic createEpic(Epic epic) {
         //в соответсвии с переделанным setId
         epic.setId(generateId());
+        rememberForRollback(epic.getId());
         mapOfEpics.put(epic.getId(), epic);
-        System.out.println("Epic[" + epic.getId() + "] created");
+        saved(epic);
+        diagnose(DiagnosticLevel.INFO, "Epic", epic.getId(), "created");
         return epic;
     }
 
@@ -158,12 +432,14 @@ public class InMemoryTaskManager implements TaskManager {
     @Override
     public boolean updateEpic(int epicId, String name, String description) {
         if (mapOfEpics.containsKey(epicId)) {
+            rememberForRollback(epicId);
             //first delete the subtasks of the epic and the epic itself
             mapOfEpics.get(epicId).setName(name);
             mapOfEpics.get(epicId).setDescription(description);
+            saved(mapOfEpics.get(epicId));
             return true;
         } else {
-            System.out.println("There is no such Epic with such id.");
+            diagnose(DiagnosticLevel.WARN, "There is no such Epic with such id.");
         }
         return false;
     }
@@ -172,12 +448,14 @@ public class InMemoryTaskManager implements TaskManager {
     @Override
     public boolean updateEpic(Epic epic) {
         if (mapOfEpics.containsKey(epic.getId())) {
+            rememberForRollback(epic.getId());
             //first delete the subtasks of the epic and the epic itself
             mapOfEpics.get(epic.getId()).setName(epic.getName());
             mapOfEpics.get(epic.getId()).setDescription(epic.getName());
+            saved(mapOfEpics.get(epic.getId()));
             return true;
         } else {
-            System.out.println("There is no such Epic with such id.");
+            diagnose(DiagnosticLevel.WARN, "There is no such Epic with such id.");
         }
         return false;
     }
@@ -189,10 +467,12 @@ public class InMemoryTaskManager implements TaskManager {
             for (int index : mapOfEpics.get(id).getSubtaskIds()) {
                 deleteSubtask(index);
             }
+            rememberForRollback(id);
             mapOfEpics.remove(id);
-            historyManager.remove(id);
+            forgetViewed(id);
+            removed("Epic", id);
         } else {
-            System.out.println("Such epic with such id does not exist.");
+            diagnose(DiagnosticLevel.WARN, "Such epic with such id does not exist.");
         }
     }
 
@@ -200,51 +480,60 @@ public class InMemoryTaskManager implements TaskManager {
     @Override
     public ArrayList<Subtask> getAllEpicSubtasks(int epicId) {
         ArrayList<Subtask> allSubtasks = new ArrayList<>();
-        if (mapOfEpics.containsKey(epicId)) {
-            for (int index : mapOfEpics.get(epicId).getSubtaskIds()) {
-                allSubtasks.add(getSubtask(index));
-            }
+        Epic epic = mapOfEpics.get(epicId);
+        if (epic != null) {
+            epic.forEachSubtaskId(index -> allSubtasks.add(getSubtask(index)));
         }
         return allSubtasks;
     }
 
     private void calculateEpicStatus(int epicId) {
-        ArrayList<Integer> subtaskIds = mapOfEpics.get(epicId).getSubtaskIds();
-        int sizeOfList = subtaskIds.size();
-        System.out.println("size of subtask list for epic = " + sizeOfList);
-
-        if (sizeOfList == 0) {
-            mapOfEpics.get(epicId).setTaskStatus(TaskStatus.NEW);
+        if (batchDepth > 0) {
+            // пересчёт отложен до фиксации пакета
+            batchEpics.add(epicId);
             return;
         }
+        Epic epic = mapOfEpics.get(epicId);
+        TaskStatus oldStatus = epic.getTaskStatus();
+        updateEpicStatus(epicId);
+        if (epic.getTaskStatus() != oldStatus) {
+            saved(epic);
+        }
+    }
 
-        int countInProgress = 0;
-        int countDone = 0;
-        int validSubtaskCount = 0;
+    // Статус берётся из счётчиков эпика, без обхода подзадач
+    private void updateEpicStatus(int epicId) {
+        Epic epic = mapOfEpics.get(epicId);
+        TaskStatus status = epic.calculateStatus();
+        // без лишнего изменения эпик сохраняет свой снимок для истории
+        if (epic.getTaskStatus() != status) {
+            epic.setTaskStatus(status);
+        }
+    }
 
-        for (int index : subtaskIds) {
-            Subtask subtask = mapOfSubtasks.get(index);
-            if (subtask == null) {
-                continue; // Skip deleted or invalid subtasks
+    // Для тестов: сверяет счётчики и статусы эпиков с полным пересчётом по подзадачам.
+    // Возвращает id эпиков, у которых они расходятся
+    public List<Integer> findInconsistentEpics() {
+        List<Integer> inconsistent = new ArrayList<>();
+        for (Epic epic : mapOfEpics.values()) {
+            int[] counts = new int[TaskStatus.values().length];
+            boolean consistent = true;
+            for (int subtaskId : epic.getSubtaskIds()) {
+                Subtask subtask = mapOfSubtasks.get(subtaskId);
+                if (subtask == null || subtask.getEpicId() != epic.getId()) {
+                    consistent = false;
+                    break;
+                }
+                counts[subtask.getTaskStatus().ordinal()]++;
             }
-            validSubtaskCount++;
-
-            if (subtask.getTaskStatus() == TaskStatus.IN_PROGRESS) {
-                countInProgress++;
-            } else if (subtask.getTaskStatus() == TaskStatus.DONE) {
-                countDone++;
+            for (TaskStatus status : TaskStatus.values()) {
+                consistent = consistent && counts[status.ordinal()] == epic.getSubtaskCount(status);
+            }
+            if (!consistent || epic.getTaskStatus() != epic.calculateStatus()) {
+                inconsistent.add(epic.getId());
             }
         }
-
-        if (validSubtaskCount == 0) {
-            mapOfEpics.get(epicId).setTaskStatus(TaskStatus.NEW);
-        } else if (countDone == validSubtaskCount) {
-            mapOfEpics.get(epicId).setTaskStatus(TaskStatus.DONE);
-        } else if (countInProgress > 0) {
-            mapOfEpics.get(epicId).setTaskStatus(TaskStatus.IN_PROGRESS);
-        } else {
-            mapOfEpics.get(epicId).setTaskStatus(TaskStatus.NEW);
-        }
+        return inconsistent;
     }
 
 
@@ -253,15 +542,22 @@ public class InMemoryTaskManager implements TaskManager {
     //Удаление всех задач
     @Override
     public void clearAllSubtasks() {
-        for (Epic e : mapOfEpics.values()) {
-            e.removeAllSubtasks();
-            calculateEpicStatus(e.getId());
+        for (int subtaskId : mapOfSubtasks.keySet()) {
+            rememberForRollback(subtaskId);
+        }
+        for (int epicId : mapOfEpics.keySet()) {
+            rememberForRollback(epicId);
         }
         // Удалить все из истории при массовом удалении задач
         for (Map.Entry<Integer, Subtask> e : mapOfSubtasks.entrySet()) {
-            historyManager.remove(e.getKey());
+            forgetViewed(e.getKey());
         }
         mapOfSubtasks.clear();
+        cleared("Subtask");
+        for (Epic e : mapOfEpics.values()) {
+            e.removeAllSubtasks();
+            calculateEpicStatus(e.getId());
+        }
     }
 
     // Получение по идентификатору.
@@ -277,16 +573,15 @@ public class InMemoryTaskManager implements TaskManager {
     @Override
     public ArrayList<Subtask> getAllSubtasks() {
         if (mapOfSubtasks.isEmpty()) {
-            System.out.println("No sub-tasks currently.");
-            System.out.println("=".repeat(50));
+            diagnose(DiagnosticLevel.DEBUG, "No sub-tasks currently.");
             return new ArrayList<>();
         }
 
-        for (Map.Entry<Integer, Subtask> e : mapOfSubtasks.entrySet()) {
-            historyManager.add(e.getValue());
+        ArrayList<Subtask> all = inIdOrder("Subtask", mapOfSubtasks, Integer.MIN_VALUE, Integer.MAX_VALUE);
+        for (Subtask entity : all) {
+            historyManager.add(entity);
         }
-
-        return new ArrayList<>(mapOfSubtasks.values());
+        return all;
     }
 
     //Создание
@@ -294,13 +589,16 @@ public class InMemoryTaskManager implements TaskManager {
     public Subtask createSubtask(Subtask subtask) {
         if (mapOfEpics.containsKey(subtask.getEpicId())) {
             subtask.setId(generateId());
+            rememberForRollback(subtask.getId());
+            rememberForRollback(subtask.getEpicId());
             mapOfSubtasks.put(subtask.getId(), subtask);
-            mapOfEpics.get(subtask.getEpicId()).addSubtaskId(subtask.getId());
-            System.out.println("Subtask[" + subtask.getId() + "] created");
+            mapOfEpics.get(subtask.getEpicId()).addSubtaskId(subtask.getId(), subtask.getTaskStatus());
+            saved(subtask);
+            diagnose(DiagnosticLevel.INFO, "Subtask", subtask.getId(), "created");
             calculateEpicStatus(subtask.getEpicId());
             return subtask;
         } else {
-            System.out.println("There is no such epic for a subtask to be associated to.");
+            diagnose(DiagnosticLevel.WARN, "There is no such epic for a subtask to be associated to.");
         }
         return null;
     }
@@ -310,14 +608,18 @@ public class InMemoryTaskManager implements TaskManager {
     public boolean updateSubtask(Subtask subtask) {
         if (mapOfSubtasks.containsKey(subtask.getId())) {
             if (mapOfSubtasks.get(subtask.getId()).getEpicId() == subtask.getEpicId()) {
+                rememberForRollback(subtask.getId());
+                rememberForRollback(subtask.getEpicId());
                 mapOfSubtasks.put(subtask.getId(), subtask);
+                mapOfEpics.get(subtask.getEpicId()).updateSubtaskStatus(subtask.getId(), subtask.getTaskStatus());
+                saved(subtask);
                 calculateEpicStatus(subtask.getEpicId());
                 return true;
             } else {
-                System.out.println("The modified subtask's epic id does not match the existing subtask's epic id");
+                diagnose(DiagnosticLevel.WARN, "The modified subtask's epic id does not match the existing subtask's epic id");
             }
         } else {
-            System.out.println("No such subtask with such subtask id exists.");
+            diagnose(DiagnosticLevel.WARN, "No such subtask with such subtask id exists.");
         }
         return false;
     }
@@ -327,13 +629,16 @@ public class InMemoryTaskManager implements TaskManager {
     public boolean deleteSubtask(int index) {
         if (mapOfSubtasks.containsKey(index)) {
             int epicId = mapOfSubtasks.get(index).getEpicId();
+            rememberForRollback(index);
+            rememberForRollback(epicId);
             mapOfEpics.get(mapOfSubtasks.get(index).getEpicId()).removeSubtaskId(index);
             mapOfSubtasks.remove(index);
-            historyManager.remove(id);
+            forgetViewed(index);
+            removed("Subtask", index);
             calculateEpicStatus(epicId);
             return true;
         } else {
-            System.out.println("There is no subtask with such id");
+            diagnose(DiagnosticLevel.WARN, "There is no subtask with such id");
         }
         return false;
     }
@@ -350,4 +655,146 @@ public class InMemoryTaskManager implements TaskManager {
     public List<Task> getHistoryManager() {
         return historyManager.getHistory();
     }
+
+    //Запросы по вторичному индексу: O(размер результата), без записи в историю
+    public List<Task> getTasksByStatus(TaskStatus status) {
+        List<Task> tasks = new ArrayList<>(statusIndex.count("Task", status));
+        statusIndex.forEach("Task", status, taskId -> tasks.add(mapOfTasks.get(taskId)));
+        return tasks;
+    }
+
+    public List<Epic> getEpicsByStatus(TaskStatus status) {
+        List<Epic> epics = new ArrayList<>(statusIndex.count("Epic", status));
+        statusIndex.forEach("Epic", status, epicId -> epics.add(mapOfEpics.get(epicId)));
+        return epics;
+    }
+
+    public List<Subtask> getSubtasksByStatus(TaskStatus status) {
+        List<Subtask> subtasks = new ArrayList<>(statusIndex.count("Subtask", status));
+        statusIndex.forEach("Subtask", status, subtaskId -> subtasks.add(mapOfSubtasks.get(subtaskId)));
+        return subtasks;
+    }
+
+    // O(1)
+    public int countByStatus(String type, TaskStatus status) {
+        return statusIndex.count(type, status);
+    }
+
+    // Количество сущностей всех типов в каждом статусе
+    public Map<TaskStatus, Integer> countByStatus() {
+        Map<TaskStatus, Integer> counts = new EnumMap<>(TaskStatus.class);
+        for (TaskStatus status : TaskStatus.values()) {
+            int count = 0;
+            for (String type : StatusIndex.TYPES) {
+                count += statusIndex.count(type, status);
+            }
+            counts.put(status, count);
+        }
+        return counts;
+    }
+
+    //Полнотекстовый поиск по имени и описанию: id лучших совпадений по убыванию релевантности.
+    //Каждое слово запроса должно найтись целиком или как начало слова
+    public List<Integer> search(String query, int limit) {
+        ensureTextIndex();
+        return textIndex.search(query, limit);
+    }
+
+    //Запросы без записи в историю
+    @Override
+    public Task peekTask(int id) {
+        return mapOfTasks.get(id);
+    }
+
+    @Override
+    public Epic peekEpic(int id) {
+        return mapOfEpics.get(id);
+    }
+
+    @Override
+    public Subtask peekSubtask(int id) {
+        return mapOfSubtasks.get(id);
+    }
+
+    @Override
+    public List<Task> listTasks() {
+        return inIdOrder("Task", mapOfTasks, Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Epic> listEpics() {
+        return inIdOrder("Epic", mapOfEpics, Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Subtask> listSubtasks() {
+        return inIdOrder("Subtask", mapOfSubtasks, Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    //Постраничный обход по возрастанию id: страница строится за O(её размера)
+    @Override
+    public List<Task> listTasks(int afterId, int limit) {
+        return inIdOrder("Task", mapOfTasks, afterId, limit);
+    }
+
+    @Override
+    public List<Epic> listEpics(int afterId, int limit) {
+        return inIdOrder("Epic", mapOfEpics, afterId, limit);
+    }
+
+    @Override
+    public List<Subtask> listSubtasks(int afterId, int limit) {
+        return inIdOrder("Subtask", mapOfSubtasks, afterId, limit);
+    }
+
+    // Порядок обхода хеш-таблиц не определён, списки строятся по отсортированным id
+    private <T extends Task> ArrayList<T> inIdOrder(String type, IntObjectHashMap<T> store, int afterId, int limit) {
+        ArrayList<T> list = new ArrayList<>(Math.max(0, Math.min(limit, store.size())));
+        statusIndex.forEachAfter(type, afterId, limit, entityId -> list.add(store.get(entityId)));
+        return list;
+    }
+
+    @Override
+    public List<Subtask> listEpicSubtasks(int epicId) {
+        List<Subtask> subtasks = new ArrayList<>();
+        Epic epic = mapOfEpics.get(epicId);
+        if (epic != null) {
+            epic.forEachSubtaskId(subtaskId -> subtasks.add(mapOfSubtasks.get(subtaskId)));
+        }
+        return subtasks;
+    }
+
+    @Override
+    public List<Task> scan(Predicate<? super Task> filter) {
+        List<Task> found = new ArrayList<>();
+        Consumer<Task> collector = task -> {
+            if (filter.test(task)) {
+                found.add(task);
+            }
+        };
+        mapOfTasks.values().forEach(collector);
+        mapOfEpics.values().forEach(collector);
+        mapOfSubtasks.values().forEach(collector);
+        return found;
+    }
+
+    @Override
+    public Collection<Task> getTasksView() {
+        return tasksView;
+    }
+
+    @Override
+    public Collection<Epic> getEpicsView() {
+        return epicsView;
+    }
+
+    @Override
+    public Collection<Subtask> getSubtasksView() {
+        return subtasksView;
+    }
+
+    @Override
+    public void forEachInHistory(Consumer<? super Task> action) {
+        historyManager.forEach(action);
+    }
 }
\ No newline at end of file
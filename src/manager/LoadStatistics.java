@@ -0,0 +1,45 @@
+package manager;
+
+// Результаты последней загрузки: объём, количество записей и скорость
+public class LoadStatistics {
+    private final long bytes;
+    private final long records;
+    private final long nanos;
+
+    public LoadStatistics(long bytes, long records, long nanos) {
+        this.bytes = bytes;
+        this.records = records;
+        this.nanos = nanos;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getRecords() {
+        return records;
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+
+    public double getMegabytesPerSecond() {
+        return nanos == 0 ? 0 : bytes / (1024.0 * 1024.0) / (nanos / 1_000_000_000.0);
+    }
+
+    public double getRecordsPerSecond() {
+        return nanos == 0 ? 0 : records / (nanos / 1_000_000_000.0);
+    }
+
+    @Override
+    public String toString() {
+        return "LoadStatistics{" +
+                "bytes=" + bytes +
+                ", records=" + records +
+                ", millis=" + nanos / 1_000_000 +
+                ", megabytesPerSecond=" + String.format("%.1f", getMegabytesPerSecond()) +
+                ", recordsPerSecond=" + String.format("%.0f", getRecordsPerSecond()) +
+                '}';
+    }
+}
@@ -3,6 +3,11 @@ package manager;
 import java.io.File;
 
 public class Managers {
+    // настройки истории для getDefaultHistory(), в том числе истории каждого нового менеджера
+    private static HistorySettings defaultHistorySettings = new HistorySettings();
+    // получатель диагностики каждого нового InMemoryTaskManager; по умолчанию ничего не выводится
+    private static DiagnosticSink defaultDiagnosticSink = DiagnosticSink.SILENT;
+
     //private, so no one has access to it.
     private Managers() {
 
@@ -12,7 +17,42 @@ public class Managers {
         return new FileBackedTaskManager(new File("resources/tasksInformation.csv"));
     }
 
+    public static FileBackedTaskManager getFileBacked(File file, PersistenceSettings settings) {
+        return FileBackedTaskManager.loadFromFile(file, settings);
+    }
+
+    public static FileBackedTaskManager getFileBacked(File file, SnapshotFormat format) {
+        PersistenceSettings settings = new PersistenceSettings();
+        settings.setSnapshotFormat(format);
+        return FileBackedTaskManager.loadFromFile(file, settings);
+    }
+
+    // для использования одного менеджера из нескольких потоков
+    public static TaskManager getConcurrent() {
+        return new ConcurrentTaskManager();
+    }
+
     public static HistoryManager getDefaultHistory() {
-        return new InMemoryHistoryManager();
+        return new InMemoryHistoryManager(defaultHistorySettings);
+    }
+
+    public static HistoryManager getDefaultHistory(HistorySettings settings) {
+        return new InMemoryHistoryManager(settings);
+    }
+
+    public static void setDefaultHistorySettings(HistorySettings settings) {
+        defaultHistorySettings = settings;
+    }
+
+    public static HistoryManager getConcurrentHistory() {
+        return new ConcurrentHistoryManager();
+    }
+
+    public static DiagnosticSink getDefaultDiagnosticSink() {
+        return defaultDiagnosticSink;
+    }
+
+    public static void setDefaultDiagnosticSink(DiagnosticSink sink) {
+        defaultDiagnosticSink = sink;
     }
 }
@@ -0,0 +1,74 @@
+package manager;
+
+import formatters.CsvCodec;
+import modelling.LazyText;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+// Файл снимка, отображённый в память, для ленивых описаний (DescriptionLoading.LAZY, LAZY_CACHED).
+// Задача хранит только ссылку на место описания в файле; строка декодируется при обращении.
+// Снимок никогда не перезаписывается на месте (SnapshotWriter пишет новый файл и переименовывает его),
+// поэтому в POSIX-системах отображение остаётся верным и после сохранения: прежнее содержимое
+// живёт, пока на него ссылаются задачи.
+class MappedSnapshot {
+    private final MappedByteBuffer buffer;
+    private final boolean cached;
+
+    private MappedSnapshot(MappedByteBuffer buffer, boolean cached) {
+        this.buffer = buffer;
+        this.cached = cached;
+    }
+
+    // null - файл больше 2 ГБ и целиком не отображается: такой снимок читается обычным способом
+    static MappedSnapshot open(File file, boolean cached) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                return null;
+            }
+            return new MappedSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), cached);
+        }
+    }
+
+    // quoted - поле CSV в кавычках, удвоенные кавычки убираются при декодировании
+    LazyText text(long offset, int length, boolean quoted) {
+        return new MappedText(this, (int) offset, length, quoted);
+    }
+
+    private static final class MappedText implements LazyText {
+        private final MappedSnapshot snapshot;
+        private final int offset;
+        private final int length;
+        private final boolean quoted;
+        // гонка при записи безопасна: строка неизменяема, в худшем случае декодируется дважды
+        private SoftReference<String> cache;
+
+        private MappedText(MappedSnapshot snapshot, int offset, int length, boolean quoted) {
+            this.snapshot = snapshot;
+            this.offset = offset;
+            this.length = length;
+            this.quoted = quoted;
+        }
+
+        @Override
+        public String load() {
+            SoftReference<String> reference = cache;
+            String value = reference == null ? null : reference.get();
+            if (value != null) {
+                return value;
+            }
+            byte[] bytes = new byte[length];
+            // чтение по абсолютному смещению не меняет позицию буфера, поэтому безопасно из разных потоков
+            snapshot.buffer.get(offset, bytes);
+            value = CsvCodec.decodeField(bytes, length, quoted);
+            if (snapshot.cached) {
+                cache = new SoftReference<>(value);
+            }
+            return value;
+        }
+    }
+}
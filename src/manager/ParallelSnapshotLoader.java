@@ -0,0 +1,200 @@
+package manager;
+
+import formatters.CsvCodec;
+import modelling.Task;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+// Параллельный разбор CSV снимка на ForkJoinPool.
+// Файл делится на куски по границам записей; границы ищутся тоже параллельно:
+// 1) в каждом куске считается чётность кавычек, префиксная сумма даёт состояние "внутри кавычек"
+//    на начале каждого куска;
+// 2) в каждом куске ищется первый перевод строки вне кавычек - начало первой записи куска;
+// 3) диапазоны между соседними началами разбираются независимо.
+// Связывание подзадач с эпиками остаётся вызывающему коду (второй проход после разбора).
+class ParallelSnapshotLoader {
+    // один кусок отображается в память целиком, поэтому кусок меньше 2 ГБ
+    private static final long MAX_CHUNK_SIZE = 256L * 1024 * 1024;
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private ParallelSnapshotLoader() {
+
+    }
+
+    // Возвращает задачи по кускам в порядке следования в файле (без заголовка)
+    static List<List<Task>> load(File file, int parallelism) throws IOException {
+        return load(file, parallelism, null);
+    }
+
+    // descriptions != null - описания не декодируются, задачи ссылаются на их место в отображённом файле
+    static List<List<Task>> load(File file, int parallelism, MappedSnapshot descriptions) throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            int chunks = (int) Math.max((long) parallelism * CHUNKS_PER_THREAD, (size + MAX_CHUNK_SIZE - 1) / MAX_CHUNK_SIZE);
+            long[] chunkStart = new long[chunks + 1];
+            for (int i = 0; i <= chunks; i++) {
+                chunkStart[i] = size * i / chunks;
+            }
+
+            // 1. чётность кавычек в каждом куске
+            List<Callable<Boolean>> parityTasks = new ArrayList<>();
+            for (int i = 0; i < chunks; i++) {
+                long start = chunkStart[i];
+                long end = chunkStart[i + 1];
+                parityTasks.add(() -> oddQuotes(channel, start, end));
+            }
+            List<Boolean> parity = getAll(pool.invokeAll(parityTasks));
+
+            // 2. начало первой записи в каждом куске (-1, если запись начинается раньше и не кончается в куске)
+            List<Callable<Long>> boundaryTasks = new ArrayList<>();
+            boolean inQuotes = false;
+            for (int i = 0; i < chunks; i++) {
+                long start = chunkStart[i];
+                long end = chunkStart[i + 1];
+                boolean quotedAtStart = inQuotes;
+                boundaryTasks.add(() -> firstRecordStart(channel, start, end, quotedAtStart));
+                inQuotes ^= parity.get(i);
+            }
+            List<Long> boundaries = getAll(pool.invokeAll(boundaryTasks));
+
+            List<Long> recordStarts = new ArrayList<>();
+            for (long boundary : boundaries) {
+                // в маленьком файле несколько кусков могут начинаться с нуля
+                if (boundary >= 0 && (recordStarts.isEmpty() || boundary > recordStarts.get(recordStarts.size() - 1))) {
+                    recordStarts.add(boundary);
+                }
+            }
+            recordStarts.add(size);
+
+            // 3. разбор диапазонов; первая запись файла - заголовок
+            List<Callable<List<Task>>> parseTasks = new ArrayList<>();
+            for (int i = 0; i + 1 < recordStarts.size(); i++) {
+                long start = recordStarts.get(i);
+                long end = recordStarts.get(i + 1);
+                boolean skipHeader = i == 0;
+                parseTasks.add(() -> parse(channel, start, end, skipHeader, descriptions));
+            }
+            return getAll(pool.invokeAll(parseTasks));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static boolean oddQuotes(FileChannel channel, long start, long end) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        boolean odd = false;
+        for (int i = 0; i < buffer.limit(); i++) {
+            if (buffer.get(i) == '"') {
+                odd = !odd;
+            }
+        }
+        return odd;
+    }
+
+    private static long firstRecordStart(FileChannel channel, long start, long end, boolean inQuotes)
+            throws IOException {
+        if (start == 0) {
+            return 0;
+        }
+        // байт перед куском: если это перевод строки вне кавычек, запись начинается ровно на границе
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start - 1, end - start + 1);
+        if (buffer.get(0) == '\n' && !inQuotes) {
+            return start;
+        }
+        for (int i = 1; i < buffer.limit(); i++) {
+            byte b = buffer.get(i);
+            if (b == '"') {
+                inQuotes = !inQuotes;
+            } else if (b == '\n' && !inQuotes) {
+                long recordStart = start - 1 + i + 1;
+                return recordStart < end ? recordStart : -1;
+            }
+        }
+        return -1;
+    }
+
+    private static List<Task> parse(FileChannel channel, long start, long end, boolean skipHeader,
+                                    MappedSnapshot descriptions) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        List<Task> tasks = new ArrayList<>();
+        CsvCodec codec = new CsvCodec(0);
+        byte[] record = new byte[256];
+        boolean inQuotes = false;
+        boolean header = skipHeader;
+        int recordStart = 0;
+        int limit = buffer.limit();
+
+        for (int i = 0; i <= limit; i++) {
+            if (i < limit) {
+                byte b = buffer.get(i);
+                if (b == '"') {
+                    inQuotes = !inQuotes;
+                    continue;
+                }
+                if (b != '\n' || inQuotes) {
+                    continue;
+                }
+            }
+
+            int recordEnd = i;
+            if (recordEnd > recordStart && buffer.get(recordEnd - 1) == '\r') {
+                recordEnd--;
+            }
+            int length = recordEnd - recordStart;
+            // строки с '#' - служебные (SnapshotFiles.isComment)
+            if (length > 0) {
+                if (header) {
+                    header = false;
+                } else if (buffer.get(recordStart) != '#') {
+                    if (record.length < length) {
+                        record = new byte[Math.max(length, record.length * 2)];
+                    }
+                    buffer.get(recordStart, record, 0, length);
+                    if (descriptions == null) {
+                        tasks.add(codec.read(record, 0, length));
+                    } else {
+                        Task task = codec.read(record, 0, length, false);
+                        // у описания null лениво загружать нечего
+                        if (codec.hasDescription()) {
+                            task.setLazyDescription(descriptions.text(start + recordStart + codec.getDescriptionStart(),
+                                    codec.getDescriptionEnd() - codec.getDescriptionStart(),
+                                    codec.isDescriptionQuoted()));
+                        }
+                        tasks.add(task);
+                    }
+                }
+            }
+            recordStart = i + 1;
+        }
+        return tasks;
+    }
+
+    private static <T> List<T> getAll(List<Future<T>> futures) throws IOException {
+        List<T> results = new ArrayList<>(futures.size());
+        for (Future<T> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Загрузка снимка прервана", exception);
+            } catch (ExecutionException exception) {
+                if (exception.getCause() instanceof IOException) {
+                    throw (IOException) exception.getCause();
+                }
+                throw new IOException("Ошибка при разборе снимка", exception.getCause());
+            }
+        }
+        return results;
+    }
+}
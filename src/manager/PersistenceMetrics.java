@@ -0,0 +1,97 @@
+package manager;
+
+// Статистика сбросов на диск: сколько операций попало в один сброс и сколько он занял.
+// Для PersistenceMode.ASYNC - ещё очередь фоновой записи: её длина, отставание диска и ожидания
+public class PersistenceMetrics {
+    private long flushCount;
+    private long operationCount;
+    private long totalFlushNanos;
+    private long maxFlushNanos;
+    private long lastLagNanos;
+    private long maxLagNanos;
+    private long backpressureCount;
+    private PersistencePipeline pipeline;
+
+    synchronized void recordFlush(int operations, long nanos) {
+        flushCount++;
+        operationCount += operations;
+        totalFlushNanos += nanos;
+        if (nanos > maxFlushNanos) {
+            maxFlushNanos = nanos;
+        }
+    }
+
+    synchronized void recordLag(long nanos) {
+        lastLagNanos = nanos;
+        if (nanos > maxLagNanos) {
+            maxLagNanos = nanos;
+        }
+    }
+
+    synchronized void recordBackpressure() {
+        backpressureCount++;
+    }
+
+    synchronized void attach(PersistencePipeline pipeline) {
+        this.pipeline = pipeline;
+    }
+
+    public synchronized long getFlushCount() {
+        return flushCount;
+    }
+
+    public synchronized long getOperationCount() {
+        return operationCount;
+    }
+
+    public synchronized double getAverageOperationsPerFlush() {
+        return flushCount == 0 ? 0 : (double) operationCount / flushCount;
+    }
+
+    public synchronized double getAverageFlushLatencyMicros() {
+        return flushCount == 0 ? 0 : totalFlushNanos / 1000.0 / flushCount;
+    }
+
+    public synchronized double getMaxFlushLatencyMicros() {
+        return maxFlushNanos / 1000.0;
+    }
+
+    // Изменения в очереди фоновой записи
+    public synchronized int getQueueDepth() {
+        return pipeline == null ? 0 : pipeline.getQueueDepth();
+    }
+
+    // Подтверждённые операции, ещё не записанные на диск
+    public synchronized long getLagOperations() {
+        return pipeline == null ? 0 : pipeline.getLagOperations();
+    }
+
+    // Время от подтверждения операции до её записи на диск: последнее и максимальное
+    public synchronized double getLastLagMicros() {
+        return lastLagNanos / 1000.0;
+    }
+
+    public synchronized double getMaxLagMicros() {
+        return maxLagNanos / 1000.0;
+    }
+
+    // Сколько раз операция ждала места в заполненной очереди
+    public synchronized long getBackpressureCount() {
+        return backpressureCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "PersistenceMetrics{" +
+                "flushCount=" + flushCount +
+                ", operationCount=" + operationCount +
+                ", averageOperationsPerFlush=" + String.format("%.2f", getAverageOperationsPerFlush()) +
+                ", averageFlushLatencyMicros=" + String.format("%.2f", getAverageFlushLatencyMicros()) +
+                ", maxFlushLatencyMicros=" + String.format("%.2f", getMaxFlushLatencyMicros()) +
+                ", queueDepth=" + getQueueDepth() +
+                ", lagOperations=" + getLagOperations() +
+                ", maxLagMicros=" + String.format("%.2f", getMaxLagMicros()) +
+                ", backpressureCount=" + backpressureCount +
+                '}';
+    }
+}
@@ -0,0 +1,14 @@
+package manager;
+
+public enum PersistenceMode {
+    // полная перезапись файла при каждом изменении
+    SNAPSHOT,
+    // дозапись изменений в журнал и периодическое сжатие журнала в снимок
+    JOURNAL,
+    // как JOURNAL, но журнал пишет фоновый поток: операция подтверждается сразу после
+    // изменения в памяти, записи на диск можно дождаться через awaitDurable()
+    ASYNC,
+    // как SNAPSHOT, но снимок разложен по файлам-сегментам (тип сущности + диапазон id),
+    // и при сохранении переписываются только изменившиеся сегменты
+    SEGMENTED
+}
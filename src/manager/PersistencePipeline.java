@@ -0,0 +1,228 @@
+package manager;
+
+import exceptions.ManagerSaveException;
+import formatters.JournalFormatter;
+import modelling.Task;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Фоновая запись журнала для PersistenceMode.ASYNC.
+// Поток менеджера только кладёт изменения в ограниченную очередь (неизменяемые снимки сущностей),
+// отдельный поток пишет их в журнал пачками: одна физическая запись (и fsync) на всё, что накопилось.
+// Если очередь заполнена, поток менеджера ждёт - так запись на диск ограничивает скорость изменений.
+class PersistencePipeline {
+    private static final int PUT = 0;
+    private static final int DELETE = 1;
+    private static final int CLEAR = 2;
+    // конец операции менеджера: все её изменения уже в очереди
+    private static final int END = 3;
+    private static final int STOP = 4;
+    private static final int MAX_BATCH = 1024;
+
+    private final BlockingQueue<Event> queue;
+    private final TaskJournal journal;
+    private final PersistenceMetrics metrics;
+    private final Thread writer;
+
+    // номер последней операции, поставленной в очередь (пишет только поток менеджера)
+    private volatile long enqueuedOperations;
+    // номер последней операции, записанной на диск (пишет только поток записи)
+    private volatile long durableOperations;
+    private volatile RuntimeException failure;
+
+    PersistencePipeline(TaskJournal journal, PersistenceSettings settings, PersistenceMetrics metrics) {
+        this.queue = new ArrayBlockingQueue<>(settings.getAsyncQueueCapacity());
+        this.journal = journal;
+        this.metrics = metrics;
+        writer = new Thread(this::writeLoop, "persistence-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    void put(Task task) {
+        // снимок не меняется, поэтому его можно отдать другому потоку
+        enqueue(new Event(PUT, task.snapshot(), 0, null, 0, 0));
+    }
+
+    void delete(int id) {
+        enqueue(new Event(DELETE, null, id, null, 0, 0));
+    }
+
+    void clear(String type) {
+        enqueue(new Event(CLEAR, null, 0, type, 0, 0));
+    }
+
+    void endOperation() {
+        long operation = enqueuedOperations + 1;
+        enqueue(new Event(END, null, 0, null, operation, System.nanoTime()));
+        enqueuedOperations = operation;
+    }
+
+    private void enqueue(Event event) {
+        checkFailure();
+        if (queue.offer(event)) {
+            return;
+        }
+        metrics.recordBackpressure();
+        try {
+            queue.put(event);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new ManagerSaveException("Ожидание очереди записи прервано", exception);
+        }
+    }
+
+    private void checkFailure() {
+        RuntimeException current = failure;
+        if (current != null) {
+            throw new ManagerSaveException("Фоновая запись журнала завершилась ошибкой", current);
+        }
+    }
+
+    // Ждёт, пока на диск попадут все операции, поставленные в очередь до вызова
+    void awaitDurable() {
+        long target = enqueuedOperations;
+        synchronized (this) {
+            while (durableOperations < target && failure == null) {
+                try {
+                    wait();
+                } catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                    throw new ManagerSaveException("Ожидание записи на диск прервано", exception);
+                }
+            }
+        }
+        checkFailure();
+    }
+
+    boolean awaitDurable(long timeout, TimeUnit unit) {
+        long target = enqueuedOperations;
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (this) {
+            while (durableOperations < target && failure == null) {
+                long left = deadline - System.nanoTime();
+                if (left <= 0) {
+                    return false;
+                }
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(this, left);
+                } catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                    throw new ManagerSaveException("Ожидание записи на диск прервано", exception);
+                }
+            }
+        }
+        checkFailure();
+        return true;
+    }
+
+    int getQueueDepth() {
+        return queue.size();
+    }
+
+    // Сколько подтверждённых операций ещё не записано на диск
+    long getLagOperations() {
+        return enqueuedOperations - durableOperations;
+    }
+
+    // Записывает оставшееся и останавливает поток записи
+    void close() {
+        try {
+            queue.put(new Event(STOP, null, 0, null, 0, 0));
+            writer.join();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+        checkFailure();
+    }
+
+    private void writeLoop() {
+        List<Event> batch = new ArrayList<>(MAX_BATCH);
+        boolean running = true;
+        while (running) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException exception) {
+                // поток записи останавливается только через STOP
+                continue;
+            }
+            queue.drainTo(batch, MAX_BATCH - 1);
+            running = writeBatch(batch);
+            batch.clear();
+        }
+    }
+
+    // Возвращает false, если в пачке был STOP
+    private boolean writeBatch(List<Event> batch) {
+        boolean running = true;
+        long lastOperation = 0;
+        long oldestEnqueuedNanos = 0;
+        if (failure == null) {
+            try {
+                for (Event event : batch) {
+                    switch (event.kind) {
+                        case PUT:
+                            journal.append(JournalFormatter.toPutRecord(event.task));
+                            break;
+                        case DELETE:
+                            journal.append(JournalFormatter.toDeleteRecord(event.id));
+                            break;
+                        case CLEAR:
+                            journal.append(JournalFormatter.toClearRecord(event.type));
+                            break;
+                        case END:
+                            journal.countOperation();
+                            if (lastOperation == 0) {
+                                oldestEnqueuedNanos = event.enqueuedNanos;
+                            }
+                            lastOperation = event.operation;
+                            break;
+                        default:
+                            running = false;
+                    }
+                }
+                journal.commit();
+            } catch (RuntimeException exception) {
+                // дальше события только вычитываются, чтобы не блокировать поток менеджера
+                failure = exception;
+            }
+        } else {
+            for (Event event : batch) {
+                running = running && event.kind != STOP;
+            }
+        }
+
+        if (lastOperation > 0 && failure == null) {
+            metrics.recordLag(System.nanoTime() - oldestEnqueuedNanos);
+        }
+        synchronized (this) {
+            if (lastOperation > 0 && failure == null) {
+                durableOperations = lastOperation;
+            }
+            notifyAll();
+        }
+        return running;
+    }
+
+    private static class Event {
+        private final int kind;
+        private final Task task;
+        private final int id;
+        private final String type;
+        private final long operation;
+        private final long enqueuedNanos;
+
+        private Event(int kind, Task task, int id, String type, long operation, long enqueuedNanos) {
+            this.kind = kind;
+            this.task = task;
+            this.id = id;
+            this.type = type;
+            this.operation = operation;
+            this.enqueuedNanos = enqueuedNanos;
+        }
+    }
+}
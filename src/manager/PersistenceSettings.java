@@ -0,0 +1,111 @@
+package manager;
+
+public class PersistenceSettings {
+    private PersistenceMode mode = PersistenceMode.SNAPSHOT;
+    // формат, в котором пишется снимок; при загрузке формат определяется по содержимому файла
+    private SnapshotFormat snapshotFormat = SnapshotFormat.CSV;
+    // после какого размера журнала (в байтах) он сворачивается в новый снимок
+    private long compactionThresholdBytes = 4L * 1024 * 1024;
+    private DurabilityPolicy durabilityPolicy = DurabilityPolicy.OS_BUFFERED;
+    // для GROUP_COMMIT: сброс не реже чем раз в groupCommitIntervalMillis
+    // или как только накопилось groupCommitMaxOperations операций
+    private long groupCommitIntervalMillis = 10;
+    private int groupCommitMaxOperations = 64;
+    // CSV снимок не меньше parallelLoadThresholdBytes разбирается параллельно в loadParallelism потоков
+    private int loadParallelism = Runtime.getRuntime().availableProcessors();
+    private long parallelLoadThresholdBytes = 1024 * 1024;
+    // для ASYNC: сколько изменений может ждать записи, прежде чем операции начнут ждать диск
+    private int asyncQueueCapacity = 4096;
+    // для SEGMENTED: сколько подряд идущих id попадает в один файл сегмента.
+    // Действует для новой доски; у сохранённой размер записан в манифесте
+    private int segmentSize = 1024;
+    private DescriptionLoading descriptionLoading = DescriptionLoading.EAGER;
+
+    public PersistenceMode getMode() {
+        return mode;
+    }
+
+    public void setMode(PersistenceMode mode) {
+        this.mode = mode;
+    }
+
+    public SnapshotFormat getSnapshotFormat() {
+        return snapshotFormat;
+    }
+
+    public void setSnapshotFormat(SnapshotFormat snapshotFormat) {
+        this.snapshotFormat = snapshotFormat;
+    }
+
+    public long getCompactionThresholdBytes() {
+        return compactionThresholdBytes;
+    }
+
+    public void setCompactionThresholdBytes(long compactionThresholdBytes) {
+        this.compactionThresholdBytes = compactionThresholdBytes;
+    }
+
+    public DurabilityPolicy getDurabilityPolicy() {
+        return durabilityPolicy;
+    }
+
+    public void setDurabilityPolicy(DurabilityPolicy durabilityPolicy) {
+        this.durabilityPolicy = durabilityPolicy;
+    }
+
+    public long getGroupCommitIntervalMillis() {
+        return groupCommitIntervalMillis;
+    }
+
+    public void setGroupCommitIntervalMillis(long groupCommitIntervalMillis) {
+        this.groupCommitIntervalMillis = groupCommitIntervalMillis;
+    }
+
+    public int getGroupCommitMaxOperations() {
+        return groupCommitMaxOperations;
+    }
+
+    public void setGroupCommitMaxOperations(int groupCommitMaxOperations) {
+        this.groupCommitMaxOperations = groupCommitMaxOperations;
+    }
+
+    public int getLoadParallelism() {
+        return loadParallelism;
+    }
+
+    public void setLoadParallelism(int loadParallelism) {
+        this.loadParallelism = loadParallelism;
+    }
+
+    public long getParallelLoadThresholdBytes() {
+        return parallelLoadThresholdBytes;
+    }
+
+    public void setParallelLoadThresholdBytes(long parallelLoadThresholdBytes) {
+        this.parallelLoadThresholdBytes = parallelLoadThresholdBytes;
+    }
+
+    public int getAsyncQueueCapacity() {
+        return asyncQueueCapacity;
+    }
+
+    public void setAsyncQueueCapacity(int asyncQueueCapacity) {
+        this.asyncQueueCapacity = asyncQueueCapacity;
+    }
+
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    public void setSegmentSize(int segmentSize) {
+        this.segmentSize = segmentSize;
+    }
+
+    public DescriptionLoading getDescriptionLoading() {
+        return descriptionLoading;
+    }
+
+    public void setDescriptionLoading(DescriptionLoading descriptionLoading) {
+        this.descriptionLoading = descriptionLoading;
+    }
+}
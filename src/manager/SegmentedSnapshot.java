@@ -0,0 +1,244 @@
+package manager;
+
+import modelling.Task;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+// Снимок, разложенный по сегментам: отдельный файл на каждый тип сущности и диапазон из segmentSize id.
+// Главный файл доски становится манифестом - списком сегментов с поколением файла каждого:
+//   #segments,1024
+//   Subtask,3,17,CSV   - подзадачи с id 3072..4095 лежат в <доска>.segments/Subtask-3.17.csv
+// Сохраняются только сегменты, помеченные markDirty, и всегда в новые файлы. Затем атомарно заменяется
+// манифест, и лишь после этого удаляются прежние файлы, поэтому после сбоя доска целиком старая или целиком новая.
+class SegmentedSnapshot {
+    static final String MANIFEST_HEADER = "#segments";
+    private static final String[] TYPES = {"Task", "Epic", "Subtask"};
+
+    interface SegmentSource {
+        // до limit сущностей типа type с id больше afterId по возрастанию id
+        List<? extends Task> list(String type, int afterId, int limit);
+    }
+
+    private final File manifestFile;
+    private final File directory;
+    private final int segmentSize;
+    // сюда сообщается о файлах, которые не удалось удалить
+    private final DiagnosticSink diagnostics;
+    // по типу: номер сегмента -> его текущий файл
+    private final List<TreeMap<Integer, Segment>> segments = new ArrayList<>();
+    private final BitSet[] dirty = new BitSet[TYPES.length];
+    private long generation;
+
+    SegmentedSnapshot(File manifestFile, int segmentSize, DiagnosticSink diagnostics) {
+        if (segmentSize <= 0) {
+            throw new IllegalArgumentException("Размер сегмента должен быть положительным: " + segmentSize);
+        }
+        this.manifestFile = manifestFile;
+        this.directory = new File(manifestFile.getPath() + ".segments");
+        this.segmentSize = segmentSize;
+        this.diagnostics = diagnostics;
+        for (int i = 0; i < TYPES.length; i++) {
+            segments.add(new TreeMap<>());
+            dirty[i] = new BitSet();
+        }
+    }
+
+    static boolean isManifest(File file) throws IOException {
+        byte[] header = MANIFEST_HEADER.getBytes(StandardCharsets.US_ASCII);
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            return new String(in.readNBytes(header.length), StandardCharsets.US_ASCII).equals(MANIFEST_HEADER);
+        }
+    }
+
+    // Размер сегмента берётся из манифеста: границы сегментов уже записанной доски не меняются
+    static SegmentedSnapshot read(File manifestFile, DiagnosticSink diagnostics) throws IOException {
+        List<String> lines = Files.readAllLines(manifestFile.toPath(), StandardCharsets.UTF_8);
+        String[] header = lines.get(0).split(",");
+        SegmentedSnapshot snapshot = new SegmentedSnapshot(manifestFile, Integer.parseInt(header[1]), diagnostics);
+        for (String line : lines) {
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split(",");
+            Segment segment = new Segment(Long.parseLong(fields[2]), SnapshotFormat.valueOf(fields[3]));
+            snapshot.segments.get(typeIndex(fields[0])).put(Integer.parseInt(fields[1]), segment);
+            snapshot.generation = Math.max(snapshot.generation, segment.generation);
+        }
+        return snapshot;
+    }
+
+    private static int typeIndex(String type) {
+        for (int i = 0; i < TYPES.length; i++) {
+            if (TYPES[i].equals(type)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Неизвестный тип сущности: " + type);
+    }
+
+    // Передаёт обработчику все сущности всех сегментов; возвращает количество прочитанных байт
+    long forEach(SnapshotFiles.TaskHandler handler) throws IOException {
+        return forEach(handler, DescriptionLoading.EAGER);
+    }
+
+    // При ленивой загрузке описаний каждый сегмент отображается в память отдельно
+    long forEach(SnapshotFiles.TaskHandler handler, DescriptionLoading loading) throws IOException {
+        long bytes = manifestFile.length();
+        for (int type = 0; type < TYPES.length; type++) {
+            for (Map.Entry<Integer, Segment> e : segments.get(type).entrySet()) {
+                File segmentFile = fileOf(type, e.getKey(), e.getValue());
+                SnapshotFiles.verifyChecksum(segmentFile);
+                if (loading == DescriptionLoading.EAGER) {
+                    bytes += SnapshotFiles.forEach(segmentFile, handler);
+                } else {
+                    bytes += SnapshotFiles.forEachLazy(segmentFile, handler,
+                            loading == DescriptionLoading.LAZY_CACHED, 1);
+                }
+            }
+        }
+        return bytes;
+    }
+
+    void markDirty(String type, int id) {
+        dirty[typeIndex(type)].set(id / segmentSize);
+    }
+
+    // Все сегменты типа, уже записанные на диск (например, после удаления всех сущностей типа)
+    void markDirty(String type) {
+        int index = typeIndex(type);
+        for (int segment : segments.get(index).keySet()) {
+            dirty[index].set(segment);
+        }
+    }
+
+    // Переписывает изменённые сегменты, затем манифест; sync - сбрасывать ли файлы на диск.
+    // buffer - буфер записи менеджера (SnapshotWriter.allocateBuffer)
+    void save(SegmentSource source, SnapshotFormat format, boolean sync, ByteBuffer buffer) throws IOException {
+        List<File> obsolete = new ArrayList<>();
+        for (int type = 0; type < TYPES.length; type++) {
+            BitSet typeDirty = dirty[type];
+            for (int segment = typeDirty.nextSetBit(0); segment >= 0; segment = typeDirty.nextSetBit(segment + 1)) {
+                Segment previous = segments.get(type).get(segment);
+                Segment written = writeSegment(type, segment, source, format, sync, buffer);
+                if (written != null) {
+                    segments.get(type).put(segment, written);
+                } else {
+                    segments.get(type).remove(segment);
+                }
+                if (previous != null) {
+                    obsolete.add(fileOf(type, segment, previous));
+                }
+            }
+        }
+        writeManifest(sync);
+
+        for (BitSet typeDirty : dirty) {
+            typeDirty.clear();
+        }
+        for (File file : obsolete) {
+            delete(file);
+        }
+    }
+
+    // null - сущностей в диапазоне нет, файл не нужен
+    private Segment writeSegment(int type, int segment, SegmentSource source, SnapshotFormat format, boolean sync,
+                                 ByteBuffer buffer) throws IOException {
+        long from = (long) segment * segmentSize;
+        long to = from + segmentSize;
+        List<? extends Task> tasks = source.list(TYPES[type], (int) from - 1, segmentSize);
+        if (tasks.isEmpty() || tasks.get(0).getId() >= to) {
+            return null;
+        }
+
+        Segment written = new Segment(++generation, format);
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Не удалось создать директорию: " + directory.getPath());
+        }
+        try (SnapshotWriter out = new SnapshotWriter(fileOf(type, segment, written), format, sync, buffer,
+                diagnostics)) {
+            SnapshotFiles.SnapshotSink sink = SnapshotFiles.openSink(out, format);
+            for (Task task : tasks) {
+                if (task.getId() >= to) {
+                    break;
+                }
+                sink.write(task);
+            }
+            sink.finish();
+            out.commit();
+        }
+        return written;
+    }
+
+    private void writeManifest(boolean sync) throws IOException {
+        StringBuilder manifest = new StringBuilder();
+        manifest.append(MANIFEST_HEADER).append(',').append(segmentSize).append('\n');
+        for (int type = 0; type < TYPES.length; type++) {
+            for (Map.Entry<Integer, Segment> e : segments.get(type).entrySet()) {
+                manifest.append(TYPES[type]).append(',').append(e.getKey()).append(',')
+                        .append(e.getValue().generation).append(',').append(e.getValue().format).append('\n');
+            }
+        }
+        SnapshotWriter.write(manifestFile, manifest.toString().getBytes(StandardCharsets.UTF_8), sync, diagnostics);
+    }
+
+    // Удаляет файлы сегментов, на которые манифест не ссылается (остатки прерванного сохранения или прежней доски)
+    void deleteUnreferenced() {
+        Set<String> referenced = new HashSet<>();
+        for (int type = 0; type < TYPES.length; type++) {
+            for (Map.Entry<Integer, Segment> e : segments.get(type).entrySet()) {
+                referenced.add(fileOf(type, e.getKey(), e.getValue()).getName());
+            }
+        }
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (!referenced.contains(file.getName())) {
+                delete(file);
+            }
+        }
+    }
+
+    // Удаляет все сегменты вместе с директорией (доска снова хранится одним снимком)
+    void deleteFiles() {
+        segments.forEach(TreeMap::clear);
+        deleteUnreferenced();
+        if (directory.exists() && !directory.delete()) {
+            diagnostics.accept(DiagnosticLevel.WARN, "Не удалось удалить директорию: " + directory.getPath());
+        }
+    }
+
+    private File fileOf(int type, int segment, Segment file) {
+        String extension = file.format == SnapshotFormat.BINARY ? ".bin" : ".csv";
+        return new File(directory, TYPES[type] + "-" + segment + "." + file.generation + extension);
+    }
+
+    private void delete(File file) {
+        if (file.exists() && !file.delete()) {
+            diagnostics.accept(DiagnosticLevel.WARN, "Не удалось удалить файл сегмента: " + file.getPath());
+        }
+    }
+
+    private static class Segment {
+        private final long generation;
+        private final SnapshotFormat format;
+
+        private Segment(long generation, SnapshotFormat format) {
+            this.generation = generation;
+            this.format = format;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package manager;
+
+import exceptions.ManagerSaveException;
+
+import java.io.File;
+import java.io.IOException;
+
+// Перевод снимка между CSV и бинарным форматом без загрузки в менеджер:
+// задачи читаются и пишутся по одной, порядок (эпики раньше подзадач) сохраняется.
+// Результат, как и снимок менеджера, пишется атомарно и с контрольной суммой
+public class SnapshotConverter {
+    private SnapshotConverter() {
+
+    }
+
+    public static void convert(File source, File target, SnapshotFormat targetFormat) {
+        DiagnosticSink diagnostics = Managers.getDefaultDiagnosticSink();
+        try (SnapshotWriter out = new SnapshotWriter(target, targetFormat, true, SnapshotWriter.allocateBuffer(),
+                diagnostics)) {
+            SnapshotFiles.verifyChecksum(source);
+            SnapshotFiles.SnapshotSink sink = SnapshotFiles.openSink(out, targetFormat);
+            if (SegmentedSnapshot.isManifest(source)) {
+                // доска в сегментах (PersistenceMode.SEGMENTED) собирается в один снимок
+                SegmentedSnapshot.read(source, diagnostics).forEach(sink::write);
+            } else {
+                SnapshotFiles.forEach(source, sink::write);
+            }
+            sink.finish();
+            out.commit();
+        } catch (IOException exception) {
+            throw new ManagerSaveException("Не удалось преобразовать снимок: " + source.getName(), exception);
+        }
+    }
+}
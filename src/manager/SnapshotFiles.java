@@ -0,0 +1,208 @@
+package manager;
+
+import formatters.BinarySnapshotReader;
+import formatters.BinarySnapshotWriter;
+import formatters.CsvCodec;
+import modelling.Task;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+// Чтение и запись снимка в любом из форматов SnapshotFormat.
+// Снимок, записанный SnapshotWriter, заканчивается строкой "#crc32c=xxxxxxxx\n" - CRC32C всех байт до неё.
+// В CSV это строка-комментарий, в бинарном формате - хвост служебной записи; читатели её пропускают.
+// Файлы без суммы (записанные до её появления) загружаются без проверки.
+class SnapshotFiles {
+    private static final int WRITE_CHUNK_SIZE = 64 * 1024;
+    private static final int VERIFY_BUFFER_SIZE = 1024 * 1024;
+    private static final String FOOTER_PREFIX = "#crc32c=";
+    static final int FOOTER_LENGTH = FOOTER_PREFIX.length() + 8 + 1;
+
+    private SnapshotFiles() {
+
+    }
+
+    interface TaskHandler {
+        void accept(Task task) throws IOException;
+    }
+
+    interface SnapshotSink {
+        void write(Task task) throws IOException;
+
+        // дописывает остаток буфера в поток
+        void finish() throws IOException;
+    }
+
+    static boolean isBinary(File file) throws IOException {
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            return BinarySnapshotReader.isBinarySnapshot(in.readNBytes(BinarySnapshotWriter.MAGIC.length));
+        }
+    }
+
+    static byte[] footer(long checksum) {
+        return String.format("%s%08x\n", FOOTER_PREFIX, checksum).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    // Сверяет контрольную сумму снимка. false - суммы в файле нет; если не совпала - IOException
+    static boolean verifyChecksum(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long dataLength = channel.size() - FOOTER_LENGTH;
+            if (dataLength < 0) {
+                return false;
+            }
+            ByteBuffer footer = ByteBuffer.allocate(FOOTER_LENGTH);
+            while (footer.hasRemaining() && channel.read(footer, dataLength + footer.position()) != -1) {
+                // дочитываем хвост целиком
+            }
+            long expected = parseFooter(footer.array());
+            if (expected < 0) {
+                return false;
+            }
+
+            CRC32C checksum = new CRC32C();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(VERIFY_BUFFER_SIZE);
+            long position = 0;
+            while (position < dataLength) {
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), dataLength - position));
+                int read = channel.read(buffer, position);
+                if (read == -1) {
+                    break;
+                }
+                position += read;
+                buffer.flip();
+                checksum.update(buffer);
+            }
+            if (checksum.getValue() != expected) {
+                throw new IOException("Контрольная сумма снимка не совпадает, файл повреждён: " + file.getName());
+            }
+            return true;
+        }
+    }
+
+    // Сумма из хвоста файла или -1, если хвост - не строка с суммой
+    private static long parseFooter(byte[] footer) {
+        String text = new String(footer, StandardCharsets.US_ASCII);
+        if (!text.startsWith(FOOTER_PREFIX) || !text.endsWith("\n")) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(text.substring(FOOTER_PREFIX.length(), text.length() - 1), 16);
+        } catch (NumberFormatException exception) {
+            return -1;
+        }
+    }
+
+    // Строки CSV, начинающиеся с '#', - служебные (контрольная сумма)
+    static boolean isComment(byte[] buffer, int offset, int length) {
+        return length > 0 && buffer[offset] == '#';
+    }
+
+    // Передаёт обработчику задачи снимка по порядку; формат определяется по содержимому.
+    // Возвращает количество прочитанных байт.
+    static long forEach(File file, TaskHandler handler) throws IOException {
+        if (isBinary(file)) {
+            try (InputStream in = new BufferedInputStream(Files.newInputStream(file.toPath()), 64 * 1024)) {
+                BinarySnapshotReader reader = new BinarySnapshotReader(in);
+                Task task;
+                while ((task = reader.next()) != null) {
+                    handler.accept(task);
+                }
+            }
+            return file.length();
+        }
+
+        CsvCodec codec = new CsvCodec(0);
+        boolean[] header = {true};
+        IOException[] failure = new IOException[1];
+        long bytes = SnapshotReader.read(file, (buffer, offset, length) -> {
+            // первая строка - заголовок
+            if (header[0]) {
+                header[0] = false;
+                return;
+            }
+            if (failure[0] != null || isComment(buffer, offset, length)) {
+                return;
+            }
+            try {
+                handler.accept(codec.read(buffer, offset, length));
+            } catch (IOException exception) {
+                failure[0] = exception;
+            }
+        });
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+        return bytes;
+    }
+
+    // То же с ленивыми описаниями: файл отображается в память, описания декодируются при обращении.
+    // CSV разбирается в parallelism потоков. Возвращает количество прочитанных байт
+    static long forEachLazy(File file, TaskHandler handler, boolean cached, int parallelism) throws IOException {
+        MappedSnapshot mapped = MappedSnapshot.open(file, cached);
+        if (mapped == null) {
+            return forEach(file, handler);
+        }
+        if (isBinary(file)) {
+            try (InputStream in = new BufferedInputStream(Files.newInputStream(file.toPath()), 64 * 1024)) {
+                BinarySnapshotReader reader = new BinarySnapshotReader(in, false);
+                Task task;
+                while ((task = reader.next()) != null) {
+                    task.setLazyDescription(mapped.text(reader.getDescriptionOffset(), reader.getDescriptionLength(), false));
+                    handler.accept(task);
+                }
+            }
+        } else {
+            for (List<Task> chunk : ParallelSnapshotLoader.load(file, Math.max(1, parallelism), mapped)) {
+                for (Task task : chunk) {
+                    handler.accept(task);
+                }
+            }
+        }
+        return file.length();
+    }
+
+    static SnapshotSink openSink(OutputStream out, SnapshotFormat format) {
+        if (format == SnapshotFormat.BINARY) {
+            BinarySnapshotWriter writer = new BinarySnapshotWriter(out);
+            return new SnapshotSink() {
+                @Override
+                public void write(Task task) throws IOException {
+                    writer.write(task);
+                }
+
+                @Override
+                public void finish() throws IOException {
+                    writer.flush();
+                }
+            };
+        }
+
+        CsvCodec codec = new CsvCodec();
+        codec.writeHeader();
+        return new SnapshotSink() {
+            @Override
+            public void write(Task task) throws IOException {
+                codec.write(task);
+                if (codec.size() >= WRITE_CHUNK_SIZE) {
+                    codec.drainTo(out);
+                }
+            }
+
+            @Override
+            public void finish() throws IOException {
+                codec.drainTo(out);
+            }
+        };
+    }
+}
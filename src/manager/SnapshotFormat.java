@@ -0,0 +1,8 @@
+package manager;
+
+public enum SnapshotFormat {
+    // текстовый CSV (совместим со старыми файлами)
+    CSV,
+    // компактный бинарный формат (formatters.BinarySnapshotWriter)
+    BINARY
+}
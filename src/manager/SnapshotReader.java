@@ -0,0 +1,94 @@
+package manager;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+// Потоковое чтение снимка через FileChannel в буфер фиксированного размера.
+// Файл целиком в память не загружается: записи передаются обработчику прямо из буфера.
+// Перевод строки внутри кавычек (RFC 4180) запись не завершает.
+class SnapshotReader {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    interface RecordHandler {
+        // record - байты записи в UTF-8 без перевода строки; буфер переиспользуется после вызова
+        void onRecord(byte[] buffer, int offset, int length);
+    }
+
+    interface TerminatedRecordHandler {
+        // end - позиция в файле сразу после перевода строки, завершающего запись
+        void onRecord(byte[] buffer, int offset, int length, long end);
+    }
+
+    // Возвращает количество прочитанных байт
+    static long read(File file, RecordHandler handler) throws IOException {
+        return read(file, (buffer, offset, length, end) -> handler.onRecord(buffer, offset, length), true);
+    }
+
+    // Только записи, завершённые переводом строки. В журнале последняя строка без него -
+    // запись, оборванная при аварийном завершении
+    static long readTerminated(File file, TerminatedRecordHandler handler) throws IOException {
+        return read(file, handler, false);
+    }
+
+    private static long read(File file, TerminatedRecordHandler handler, boolean lastUnterminated)
+            throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int filled = 0;
+        int scanned = 0;
+        boolean inQuotes = false;
+        long bytesRead = 0;
+        // позиция в файле начала буфера
+        long bufferStart = 0;
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            while (true) {
+                if (filled == buffer.length) {
+                    // строка длиннее буфера - буфер растёт до длины самой длинной строки
+                    byte[] grown = new byte[buffer.length * 2];
+                    System.arraycopy(buffer, 0, grown, 0, filled);
+                    buffer = grown;
+                }
+
+                int read = channel.read(ByteBuffer.wrap(buffer, filled, buffer.length - filled));
+                if (read == -1) {
+                    break;
+                }
+                bytesRead += read;
+                filled += read;
+
+                int lineStart = 0;
+                for (int i = scanned; i < filled; i++) {
+                    if (buffer[i] == '"') {
+                        inQuotes = !inQuotes;
+                    } else if (buffer[i] == '\n' && !inQuotes) {
+                        emit(handler, buffer, lineStart, i, bufferStart + i + 1);
+                        lineStart = i + 1;
+                    }
+                }
+
+                // недочитанный хвост переносим в начало буфера
+                System.arraycopy(buffer, lineStart, buffer, 0, filled - lineStart);
+                filled -= lineStart;
+                scanned = filled;
+                bufferStart += lineStart;
+            }
+        }
+
+        if (filled > 0 && lastUnterminated) {
+            emit(handler, buffer, 0, filled, bytesRead);
+        }
+        return bytesRead;
+    }
+
+    private static void emit(TerminatedRecordHandler handler, byte[] buffer, int start, int end, long position) {
+        if (end > start && buffer[end - 1] == '\r') {
+            end--;
+        }
+        if (end > start) {
+            handler.onRecord(buffer, start, end - start, position);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package manager;
+
+import formatters.BinarySnapshotWriter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+// Запись снимка через FileChannel с большим прямым буфером: один системный вызов на мегабайт.
+// Данные идут во временный файл рядом с целевым; commit() дописывает контрольную сумму (SnapshotFiles.footer),
+// всегда сбрасывает файл на диск и атомарно переименовывает его поверх целевого: без fsync перед
+// переименованием после сбоя питания на месте снимка мог бы оказаться пустой или недописанный файл.
+// Без commit() close() удаляет временный файл, целевой остаётся прежним.
+// Буфер принадлежит вызывающему: менеджер переиспользует один прямой буфер для всех своих сохранений.
+class SnapshotWriter extends OutputStream {
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    private final File target;
+    private final File tempFile;
+    private final SnapshotFormat format;
+    private final boolean syncDirectory;
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final CRC32C checksum = new CRC32C();
+    // сюда сообщается о временном файле, который не удалось удалить
+    private final DiagnosticSink diagnostics;
+    private boolean committed;
+
+    // syncDirectory - сбрасывать ли на диск и каталог, чтобы само переименование пережило сбой.
+    // Одним буфером одновременно может пользоваться только один SnapshotWriter
+    SnapshotWriter(File target, SnapshotFormat format, boolean syncDirectory, ByteBuffer buffer,
+                   DiagnosticSink diagnostics) throws IOException {
+        this.target = target;
+        this.tempFile = new File(target.getPath() + ".tmp");
+        this.format = format;
+        this.syncDirectory = syncDirectory;
+        this.buffer = buffer;
+        this.diagnostics = diagnostics;
+        this.channel = FileChannel.open(tempFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        buffer.clear();
+    }
+
+    // Прямой буфер дорого выделять на каждое сохранение: его создают один раз и передают каждому SnapshotWriter
+    static ByteBuffer allocateBuffer() {
+        return ByteBuffer.allocateDirect(BUFFER_SIZE);
+    }
+
+    // Небольшой файл целиком (история просмотров, манифест сегментов): буфер по размеру содержимого
+    static void write(File target, byte[] content, boolean syncDirectory, DiagnosticSink diagnostics)
+            throws IOException {
+        try (SnapshotWriter out = new SnapshotWriter(target, SnapshotFormat.CSV, syncDirectory,
+                ByteBuffer.allocate(Math.max(1, content.length)), diagnostics)) {
+            out.write(content);
+            out.commit();
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (!buffer.hasRemaining()) {
+            drain();
+        }
+        buffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (!buffer.hasRemaining()) {
+                drain();
+            }
+            int chunk = Math.min(length, buffer.remaining());
+            buffer.put(bytes, offset, chunk);
+            offset += chunk;
+            length -= chunk;
+        }
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        checksum.update(buffer);
+        buffer.rewind();
+        writeFully(buffer);
+        buffer.clear();
+    }
+
+    private void writeFully(ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+
+    void commit() throws IOException {
+        if (format == SnapshotFormat.BINARY) {
+            // в бинарном формате сумма оформлена служебной записью, которую читатель пропускает
+            write(new byte[]{(byte) (1 + SnapshotFiles.FOOTER_LENGTH), BinarySnapshotWriter.TYPE_FOOTER});
+        }
+        drain();
+        writeFully(ByteBuffer.wrap(SnapshotFiles.footer(checksum.getValue())));
+        channel.force(false);
+        channel.close();
+
+        Files.move(tempFile.toPath(), target.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        committed = true;
+        if (syncDirectory) {
+            syncDirectory();
+        }
+    }
+
+    // Без этого после сбоя питания переименование может не сохраниться
+    private void syncDirectory() {
+        File directory = target.getAbsoluteFile().getParentFile();
+        try (FileChannel directoryChannel = FileChannel.open(directory.toPath(), StandardOpenOption.READ)) {
+            directoryChannel.force(true);
+        } catch (IOException exception) {
+            // не все системы позволяют открыть каталог (например, Windows): там обходимся без этого шага
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel.isOpen()) {
+            channel.close();
+        }
+        if (!committed && tempFile.exists() && !tempFile.delete()) {
+            diagnostics.accept(DiagnosticLevel.WARN, "Не удалось удалить временный файл: " + tempFile.getPath());
+        }
+    }
+}
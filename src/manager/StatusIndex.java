@@ -0,0 +1,129 @@
+package manager;
+
+import collections.IntHashSet;
+import collections.IntIntHashMap;
+import collections.IntSortedSet;
+import modelling.Task;
+import modelling.TaskStatus;
+
+import java.util.function.IntConsumer;
+
+// Вторичный индекс: id сущностей по типу и статусу.
+// Для каждой сущности запоминается ячейка, в которую она попала, поэтому при изменении статуса
+// (в том числе изменении самого объекта перед update*) id переносится за O(1).
+// Кроме того, id каждого типа хранятся по возрастанию - для постраничного обхода.
+class StatusIndex {
+    static final String[] TYPES = {"Task", "Epic", "Subtask"};
+    private static final TaskStatus[] STATUSES = TaskStatus.values();
+
+    private final IntHashSet[] buckets = new IntHashSet[TYPES.length * STATUSES.length];
+    // id -> номер ячейки
+    private final IntIntHashMap bucketById = new IntIntHashMap();
+    private final IntSortedSet[] sortedIds = new IntSortedSet[TYPES.length];
+
+    StatusIndex() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new IntHashSet();
+        }
+        for (int i = 0; i < sortedIds.length; i++) {
+            sortedIds[i] = new IntSortedSet();
+        }
+    }
+
+    static int typeIndex(String type) {
+        switch (type) {
+            case "Task":
+                return 0;
+            case "Epic":
+                return 1;
+            case "Subtask":
+                return 2;
+            default:
+                throw new IllegalArgumentException("Неизвестный тип задачи: " + type);
+        }
+    }
+
+    private static int bucket(int typeIndex, TaskStatus status) {
+        return typeIndex * STATUSES.length + status.ordinal();
+    }
+
+    private static int typeOfBucket(int bucket) {
+        return bucket / STATUSES.length;
+    }
+
+    void put(Task task) {
+        int typeIndex = typeIndex(task.getType());
+        int bucket = bucket(typeIndex, task.getTaskStatus());
+        int previous = bucketById.get(task.getId());
+        if (previous == bucket) {
+            return;
+        }
+        if (previous != IntIntHashMap.NO_VALUE) {
+            buckets[previous].remove(task.getId());
+            if (typeOfBucket(previous) != typeIndex) {
+                sortedIds[typeOfBucket(previous)].remove(task.getId());
+                sortedIds[typeIndex].add(task.getId());
+            }
+        } else {
+            sortedIds[typeIndex].add(task.getId());
+        }
+        buckets[bucket].add(task.getId());
+        bucketById.put(task.getId(), bucket);
+    }
+
+    void remove(int id) {
+        int previous = bucketById.remove(id);
+        if (previous != IntIntHashMap.NO_VALUE) {
+            buckets[previous].remove(id);
+            sortedIds[typeOfBucket(previous)].remove(id);
+        }
+    }
+
+    void clear(String type) {
+        int typeIndex = typeIndex(type);
+        for (TaskStatus status : STATUSES) {
+            IntHashSet ids = buckets[bucket(typeIndex, status)];
+            ids.forEach(bucketById::remove);
+            ids.clear();
+        }
+        sortedIds[typeIndex].clear();
+    }
+
+    void clear() {
+        for (IntHashSet ids : buckets) {
+            ids.clear();
+        }
+        for (IntSortedSet ids : sortedIds) {
+            ids.clear();
+        }
+        bucketById.clear();
+    }
+
+    void forEach(String type, IntConsumer action) {
+        int typeIndex = typeIndex(type);
+        for (TaskStatus status : STATUSES) {
+            buckets[bucket(typeIndex, status)].forEach(action);
+        }
+    }
+
+    int count(String type, TaskStatus status) {
+        return buckets[bucket(typeIndex(type), status)].size();
+    }
+
+    void forEach(String type, TaskStatus status, IntConsumer action) {
+        buckets[bucket(typeIndex(type), status)].forEach(action);
+    }
+
+    // До limit id типа, больших afterId, по возрастанию
+    int forEachAfter(String type, int afterId, int limit, IntConsumer action) {
+        return sortedIds[typeIndex(type)].forEachAfter(afterId, limit, action);
+    }
+
+    // После массовой вставки (загрузка, откат пакета): чтение индекса не должно его перестраивать,
+    // снимок по таймеру (FileBackedTaskManager) читает его из другого потока
+    void sortIds() {
+        for (IntSortedSet ids : sortedIds) {
+            ids.sort();
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package manager;
+
+import exceptions.ManagerSaveException;
+import formatters.JournalFormatter;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// Журнал изменений, в который только дописываются строки.
+// При сжатии текущий журнал переименовывается в *.old и открывается новый.
+// Методы synchronized: при GROUP_COMMIT сброс на диск выполняет отдельный поток.
+class TaskJournal {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File file;
+    private final File rotatedFile;
+    private final PersistenceSettings settings;
+    private final PersistenceMetrics metrics;
+    // ошибки фонового сброса некому бросить - они передаются сюда
+    private final DiagnosticSink diagnostics;
+    private FileOutputStream stream;
+    private BufferedWriter writer;
+    private long size;
+    // операции, записанные в буфер, но ещё не сброшенные на диск
+    private int pendingOperations;
+    private ScheduledExecutorService groupCommitExecutor;
+
+    TaskJournal(File file, PersistenceSettings settings, PersistenceMetrics metrics, DiagnosticSink diagnostics) {
+        this.file = file;
+        this.rotatedFile = rotatedFileFor(file);
+        this.settings = settings;
+        this.metrics = metrics;
+        this.diagnostics = diagnostics;
+        open();
+
+        if (settings.getDurabilityPolicy() == DurabilityPolicy.GROUP_COMMIT) {
+            groupCommitExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "journal-group-commit");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long interval = settings.getGroupCommitIntervalMillis();
+            groupCommitExecutor.scheduleWithFixedDelay(this::commitScheduled, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    static File rotatedFileFor(File journalFile) {
+        return new File(journalFile.getPath() + ".old");
+    }
+
+    synchronized void append(String record) {
+        try {
+            writer.write(record);
+            writer.newLine();
+            // размер считаем приблизительно, в символах
+            size += record.length() + System.lineSeparator().length();
+        } catch (IOException exception) {
+            throw new ManagerSaveException("Не удалось записать в журнал: " + file.getName(), exception);
+        }
+    }
+
+    // Вызывается один раз после каждой операции менеджера (её записи уже в буфере)
+    synchronized void endOperation() {
+        countOperation();
+        switch (settings.getDurabilityPolicy()) {
+            case PER_OPERATION:
+            case OS_BUFFERED:
+                commit();
+                break;
+            case GROUP_COMMIT:
+                if (pendingOperations >= settings.getGroupCommitMaxOperations()) {
+                    commit();
+                }
+                break;
+        }
+    }
+
+    // Для фоновой записи (PersistencePipeline): операция учтена, сброс решает вызывающий
+    synchronized void countOperation() {
+        append(JournalFormatter.toEndRecord());
+        pendingOperations++;
+    }
+
+    // Одна физическая запись (и один fsync) на все накопленные операции
+    synchronized void commit() {
+        if (pendingOperations == 0) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            writer.flush();
+            if (settings.getDurabilityPolicy() != DurabilityPolicy.OS_BUFFERED) {
+                stream.getFD().sync();
+            }
+        } catch (IOException exception) {
+            throw new ManagerSaveException("Не удалось записать в журнал: " + file.getName(), exception);
+        }
+        metrics.recordFlush(pendingOperations, System.nanoTime() - start);
+        pendingOperations = 0;
+    }
+
+    private void commitScheduled() {
+        try {
+            commit();
+        } catch (ManagerSaveException exception) {
+            diagnostics.accept(DiagnosticLevel.WARN, "Ошибка при групповой записи журнала: " + exception.getMessage());
+        }
+    }
+
+    synchronized long size() {
+        return size;
+    }
+
+    // Закрывает текущий журнал, переносит его в *.old и начинает новый.
+    // Возвращает файл, который нужно свернуть в снимок.
+    synchronized File rotate() {
+        commit();
+        closeWriter();
+        try {
+            Files.move(file.toPath(), rotatedFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException exception) {
+            throw new ManagerSaveException("Не удалось переименовать журнал: " + file.getName(), exception);
+        }
+        open();
+        return rotatedFile;
+    }
+
+    // Снимок уже содержит все изменения: оба файла журнала больше не нужны
+    synchronized void reset() {
+        closeWriter();
+        pendingOperations = 0;
+        deleteFiles(file);
+        open();
+    }
+
+    synchronized void close() {
+        if (groupCommitExecutor != null) {
+            groupCommitExecutor.shutdown();
+        }
+        commit();
+        closeWriter();
+    }
+
+    private void closeWriter() {
+        try {
+            writer.close();
+        } catch (IOException exception) {
+            throw new ManagerSaveException("Не удалось закрыть журнал: " + file.getName(), exception);
+        }
+    }
+
+    private void open() {
+        try {
+            stream = new FileOutputStream(file, true);
+            writer = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), BUFFER_SIZE);
+        } catch (IOException exception) {
+            throw new ManagerSaveException("Не удалось открыть журнал: " + file.getName(), exception);
+        }
+        size = file.length();
+    }
+
+    static void deleteFiles(File journalFile) {
+        try {
+            Files.deleteIfExists(rotatedFileFor(journalFile).toPath());
+            Files.deleteIfExists(journalFile.toPath());
+        } catch (IOException exception) {
+            throw new ManagerSaveException("Не удалось удалить журнал: " + journalFile.getName(), exception);
+        }
+    }
+
+    // Сначала проигрывается *.old (если сжатие не успело завершиться), затем основной журнал.
+    // Записи идемпотентны, поэтому повторное применение уже свёрнутого журнала безопасно.
+    // Обработчику передаются только записи завершённых операций (см. JournalFormatter.END).
+    // Незавершённый хвост отрезается: иначе журнал, открытый на дозапись, продолжил бы оборванную
+    // строку или завершил бы чужую операцию своей записью END.
+    static boolean replay(File journalFile, Consumer<String> handler, DiagnosticSink diagnostics) {
+        boolean replayed = replayFile(rotatedFileFor(journalFile), handler, diagnostics);
+        return replayFile(journalFile, handler, diagnostics) || replayed;
+    }
+
+    private static boolean replayFile(File file, Consumer<String> handler, DiagnosticSink diagnostics) {
+        if (!file.exists()) {
+            return false;
+        }
+        List<String> operation = new ArrayList<>();
+        // позиция в файле сразу после последней записи END
+        long[] committedEnd = {0};
+        long bytes;
+        // запись может содержать перевод строки внутри кавычек, поэтому не readLine
+        try {
+            bytes = SnapshotReader.readTerminated(file, (buffer, offset, length, end) -> {
+                String record = new String(buffer, offset, length, StandardCharsets.UTF_8);
+                if (record.equals(JournalFormatter.toEndRecord())) {
+                    operation.forEach(handler);
+                    operation.clear();
+                    committedEnd[0] = end;
+                } else {
+                    operation.add(record);
+                }
+            });
+            if (committedEnd[0] < bytes) {
+                // операция не успела записаться целиком: применять её часть нельзя
+                diagnostics.accept(DiagnosticLevel.WARN, "Пропущена незавершённая операция в конце журнала "
+                        + file.getName() + ": полных записей " + operation.size()
+                        + ", отрезано байт " + (bytes - committedEnd[0]));
+                truncate(file, committedEnd[0]);
+            }
+        } catch (IOException exception) {
+            throw new ManagerSaveException("Ошибка при чтении журнала: " + file.getName(), exception);
+        }
+        return bytes > 0;
+    }
+
+    private static void truncate(File file, long length) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+            channel.truncate(length);
+            channel.force(false);
+        }
+    }
+}
@@ -4,7 +4,10 @@ import modelling.Epic;
 import modelling.Subtask;
 import modelling.Task;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 public interface TaskManager {
     //Task methods
@@ -69,4 +72,45 @@ public interface TaskManager {
 
     //Получить историю тасков, к которым мы получали доступ
     List<Task> getHistoryManager();
+
+    //Запросы без побочных эффектов: в отличие от get*, не записывают обращения в историю
+    Task peekTask(int id);
+
+    Epic peekEpic(int id);
+
+    Subtask peekSubtask(int id);
+
+    List<Task> listTasks();
+
+    List<Epic> listEpics();
+
+    List<Subtask> listSubtasks();
+
+    //Постранично, по возрастанию id: до limit сущностей с id больше afterId.
+    //Следующая страница запрашивается с id последней полученной сущности; первая - с afterId = -1
+    List<Task> listTasks(int afterId, int limit);
+
+    List<Epic> listEpics(int afterId, int limit);
+
+    List<Subtask> listSubtasks(int afterId, int limit);
+
+    List<Subtask> listEpicSubtasks(int epicId);
+
+    //Все сущности (задачи, эпики, подзадачи), подходящие под фильтр
+    List<Task> scan(Predicate<? super Task> filter);
+
+    //Представления только для чтения: отражают текущее содержимое менеджера без копирования
+    //и не записывают обращения в историю
+    Collection<Task> getTasksView();
+
+    Collection<Epic> getEpicsView();
+
+    Collection<Subtask> getSubtasksView();
+
+    //Обход истории без создания списка
+    void forEachInHistory(Consumer<? super Task> action);
+
+    //Пакетное выполнение: изменения внутри batch применяются атомарно
+    //и откатываются целиком, если batch выбросил исключение
+    void executeBatch(Consumer<TaskManager> batch);
 }
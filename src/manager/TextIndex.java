@@ -0,0 +1,191 @@
+package manager;
+
+import collections.IntIntHashMap;
+import collections.IntObjectHashMap;
+import modelling.Task;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+// Инвертированный индекс по имени и описанию.
+// Слова - последовательности букв и цифр, приводятся к нижнему регистру.
+// Словарь отсортирован, поэтому слово запроса ищется и как префикс ("зад" найдёт "задача").
+// Вес вхождения: 2 в имени, 1 в описании; ранжирование - сумма вес * idf по словам запроса.
+class TextIndex {
+    private static final int NAME_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+    private static final String[] NO_TERMS = new String[0];
+
+    // слово -> (id -> суммарный вес слова в сущности)
+    private final TreeMap<String, IntIntHashMap> postings = new TreeMap<>();
+    // id -> проиндексированные слова (для удаления старой версии при обновлении)
+    private final IntObjectHashMap<String[]> termsById = new IntObjectHashMap<>();
+
+    void put(Task task) {
+        String[] terms = terms(task);
+        String[] previous = termsById.get(task.getId());
+        if (previous != null && Arrays.equals(previous, terms)) {
+            // например, у эпика поменялся только статус
+            return;
+        }
+        remove(task.getId());
+        termsById.put(task.getId(), terms);
+        int nameTerms = nameTermCount(terms);
+        for (int i = 0; i < terms.length; i++) {
+            if (i == nameTerms) {
+                continue;
+            }
+            int weight = i < nameTerms ? NAME_WEIGHT : DESCRIPTION_WEIGHT;
+            IntIntHashMap ids = postings.computeIfAbsent(terms[i], term -> new IntIntHashMap(1));
+            int current = ids.get(task.getId());
+            ids.put(task.getId(), current == IntIntHashMap.NO_VALUE ? weight : current + weight);
+        }
+    }
+
+    void remove(int id) {
+        String[] terms = termsById.remove(id);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms) {
+            if (term.isEmpty()) {
+                continue;
+            }
+            IntIntHashMap ids = postings.get(term);
+            if (ids != null) {
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+
+    void clear() {
+        postings.clear();
+        termsById.clear();
+    }
+
+    // id лучших совпадений по убыванию релевантности; в результат попадают сущности,
+    // в которых нашлось каждое слово запроса (целиком или как начало слова)
+    List<Integer> search(String query, int limit) {
+        List<String> queryTerms = tokenize(query);
+        if (queryTerms.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        int documents = Math.max(1, termsById.size());
+        IntObjectHashMap<Match> matches = new IntObjectHashMap<>();
+        for (int q = 0; q < queryTerms.size(); q++) {
+            String prefix = queryTerms.get(q);
+            int termNumber = q;
+            for (Map.Entry<String, IntIntHashMap> e : postings.subMap(prefix, prefix + Character.MAX_VALUE).entrySet()) {
+                IntIntHashMap ids = e.getValue();
+                double idf = Math.log(1 + (double) documents / ids.size());
+                // точное совпадение слова важнее совпадения по префиксу
+                double boost = e.getKey().length() == prefix.length() ? 2 : 1;
+                ids.forEach((id, weight) -> {
+                    Match match = matches.get(id);
+                    if (match == null) {
+                        if (termNumber > 0) {
+                            // не нашлось одно из предыдущих слов запроса
+                            return;
+                        }
+                        match = new Match(id);
+                        matches.put(id, match);
+                    }
+                    if (match.matchedTerms == termNumber) {
+                        match.matchedTerms++;
+                    }
+                    if (match.matchedTerms == termNumber + 1) {
+                        match.score += weight * idf * boost;
+                    }
+                });
+            }
+        }
+
+        // отбор limit лучших без сортировки всех кандидатов
+        PriorityQueue<Match> best = new PriorityQueue<>(limit + 1, TextIndex::compareWorstFirst);
+        for (Match match : matches.values()) {
+            if (match.matchedTerms < queryTerms.size()) {
+                continue;
+            }
+            best.add(match);
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        Integer[] ids = new Integer[best.size()];
+        for (int i = ids.length - 1; i >= 0; i--) {
+            ids[i] = best.poll().id;
+        }
+        return Arrays.asList(ids);
+    }
+
+    private static int compareWorstFirst(Match a, Match b) {
+        int byScore = Double.compare(a.score, b.score);
+        return byScore != 0 ? byScore : Integer.compare(b.id, a.id);
+    }
+
+    // Слова имени, затем пустая строка-разделитель, затем слова описания
+    private static String[] terms(Task task) {
+        List<String> nameTerms = tokenize(task.getName());
+        List<String> descriptionTerms = tokenize(task.getDescription());
+        if (nameTerms.isEmpty() && descriptionTerms.isEmpty()) {
+            return NO_TERMS;
+        }
+        String[] terms = new String[nameTerms.size() + 1 + descriptionTerms.size()];
+        int i = 0;
+        for (String term : nameTerms) {
+            terms[i++] = term;
+        }
+        terms[i++] = "";
+        for (String term : descriptionTerms) {
+            terms[i++] = term;
+        }
+        return terms;
+    }
+
+    private static int nameTermCount(String[] terms) {
+        for (int i = 0; i < terms.length; i++) {
+            if (terms[i].isEmpty()) {
+                return i;
+            }
+        }
+        return terms.length;
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private static class Match {
+        private final int id;
+        // сколько первых слов запроса уже нашлось
+        private int matchedTerms;
+        private double score;
+
+        private Match(int id) {
+            this.id = id;
+        }
+    }
+}
@@ -1,24 +1,137 @@
 package modelling;
 
+import collections.IntIntHashMap;
+
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
 
 public class Epic extends Task {
-    private ArrayList<Integer> subtaskIds = new ArrayList<>();
+    private static final TaskStatus[] STATUSES = TaskStatus.values();
+    private static final byte REMOVED = -1;
+
+    // id подзадач в порядке добавления и последний известный эпику статус каждой (ordinal).
+    // Удалённая ячейка помечается REMOVED, массивы сжимаются, когда таких больше половины
+    private int[] subtaskIds = new int[4];
+    private byte[] subtaskStatuses = new byte[4];
+    private int slots;
+    // id подзадачи -> номер её ячейки
+    private IntIntHashMap slotById = new IntIntHashMap();
+    // количество подзадач в каждом статусе (по ordinal): статус эпика считается за O(1)
+    private int[] statusCounts = new int[STATUSES.length];
 
     public Epic(String name, String description) {
         super(name, description, TaskStatus.NEW);
     }
 
     public ArrayList<Integer> getSubtaskIds() {
-        return new ArrayList<>(subtaskIds);
+        ArrayList<Integer> ids = new ArrayList<>(slotById.size());
+        for (int i = 0; i < slots; i++) {
+            if (subtaskStatuses[i] != REMOVED) {
+                ids.add(subtaskIds[i]);
+            }
+        }
+        return ids;
+    }
+
+    // Обход без создания списка; эпик нельзя изменять во время обхода
+    public void forEachSubtaskId(IntConsumer action) {
+        for (int i = 0; i < slots; i++) {
+            if (subtaskStatuses[i] != REMOVED) {
+                action.accept(subtaskIds[i]);
+            }
+        }
     }
 
     public void addSubtaskId(int id) {
-        subtaskIds.add(id);
+        addSubtaskId(id, TaskStatus.NEW);
+    }
+
+    public void addSubtaskId(int id, TaskStatus status) {
+        beforeChange();
+        int slot = slotById.get(id);
+        if (slot != IntIntHashMap.NO_VALUE) {
+            setStatus(slot, status);
+            afterChange();
+            return;
+        }
+        if (slots == subtaskIds.length) {
+            subtaskIds = Arrays.copyOf(subtaskIds, slots * 2);
+            subtaskStatuses = Arrays.copyOf(subtaskStatuses, slots * 2);
+        }
+        subtaskIds[slots] = id;
+        subtaskStatuses[slots] = (byte) status.ordinal();
+        slotById.put(id, slots);
+        slots++;
+        statusCounts[status.ordinal()]++;
+        afterChange();
+    }
+
+    // Вызывается менеджером при изменении статуса подзадачи
+    public void updateSubtaskStatus(int id, TaskStatus status) {
+        int slot = slotById.get(id);
+        if (slot != IntIntHashMap.NO_VALUE && subtaskStatuses[slot] != status.ordinal()) {
+            beforeChange();
+            setStatus(slot, status);
+            afterChange();
+        }
+    }
+
+    private void setStatus(int slot, TaskStatus status) {
+        statusCounts[subtaskStatuses[slot]]--;
+        statusCounts[status.ordinal()]++;
+        subtaskStatuses[slot] = (byte) status.ordinal();
     }
 
     public void removeSubtaskId(int id) {
-        subtaskIds.remove(Integer.valueOf(id));
+        int slot = slotById.remove(id);
+        if (slot == IntIntHashMap.NO_VALUE) {
+            return;
+        }
+        beforeChange();
+        statusCounts[subtaskStatuses[slot]]--;
+        subtaskStatuses[slot] = REMOVED;
+        if (slotById.size() < slots / 2) {
+            compact();
+        }
+        afterChange();
+    }
+
+    private void compact() {
+        int live = 0;
+        for (int i = 0; i < slots; i++) {
+            if (subtaskStatuses[i] != REMOVED) {
+                subtaskIds[live] = subtaskIds[i];
+                subtaskStatuses[live] = subtaskStatuses[i];
+                slotById.put(subtaskIds[live], live);
+                live++;
+            }
+        }
+        slots = live;
+    }
+
+    public int getSubtaskCount() {
+        return slotById.size();
+    }
+
+    public int getSubtaskCount(TaskStatus status) {
+        return statusCounts[status.ordinal()];
+    }
+
+    // Статус по счётчикам: DONE - все подзадачи выполнены, IN_PROGRESS - есть подзадача в работе,
+    // иначе (в том числе без подзадач) - NEW
+    public TaskStatus calculateStatus() {
+        int total = slotById.size();
+        if (total == 0) {
+            return TaskStatus.NEW;
+        }
+        if (statusCounts[TaskStatus.DONE.ordinal()] == total) {
+            return TaskStatus.DONE;
+        }
+        if (statusCounts[TaskStatus.IN_PROGRESS.ordinal()] > 0) {
+            return TaskStatus.IN_PROGRESS;
+        }
+        return TaskStatus.NEW;
     }
 
     // Для детального сохранения эпика
@@ -26,15 +139,38 @@ public class Epic extends Task {
     public Task copy() {
         Epic copy = new Epic(this.name, this.description);
         copy.setId(this.id);
+        copy.lazyDescription = this.lazyDescription;
         copy.setTaskStatus(this.taskStatus);
-        for (int subId : this.getSubtaskIds()) {
-            copy.addSubtaskId(subId);
+        for (int i = 0; i < slots; i++) {
+            if (subtaskStatuses[i] != REMOVED) {
+                copy.addSubtaskId(subtaskIds[i], STATUSES[subtaskStatuses[i]]);
+            }
         }
         return copy;
     }
 
+    @Override
+    protected void restoreFields(Task state) {
+        super.restoreFields(state);
+        Epic epic = (Epic) state;
+        subtaskIds = Arrays.copyOf(epic.subtaskIds, epic.subtaskIds.length);
+        subtaskStatuses = Arrays.copyOf(epic.subtaskStatuses, epic.subtaskStatuses.length);
+        slots = epic.slots;
+        statusCounts = Arrays.copyOf(epic.statusCounts, epic.statusCounts.length);
+        slotById = new IntIntHashMap();
+        for (int i = 0; i < slots; i++) {
+            if (subtaskStatuses[i] != REMOVED) {
+                slotById.put(subtaskIds[i], i);
+            }
+        }
+    }
+
     public void removeAllSubtasks() {
-        subtaskIds.clear();
+        beforeChange();
+        slots = 0;
+        slotById.clear();
+        statusCounts = new int[STATUSES.length];
+        afterChange();
     }
 
     @Override
@@ -45,9 +181,9 @@ public class Epic extends Task {
     @Override
     public String toString() {
         return "Epic{" +
-                "subtaskIds=" + subtaskIds +
+                "subtaskIds=" + getSubtaskIds() +
                 ", name='" + name + '\'' +
-                ", description='" + description + '\'' +
+                ", description='" + getDescription() + '\'' +
                 ", id=" + id +
                 ", taskStatus=" + taskStatus +
                 '}';
@@ -0,0 +1,7 @@
+package modelling;
+
+// Текст, который читается только при обращении (например, описание из отображённого в память снимка).
+// Реализация должна быть потокобезопасной: одну ссылку разделяют задача и её копии
+public interface LazyText {
+    String load();
+}
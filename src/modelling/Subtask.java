@@ -13,9 +13,16 @@ public class Subtask extends Task {
     public Task copy() {
         Subtask copy = new Subtask(this.name, this.description, this.taskStatus, this.epicId);
         copy.setId(this.id);
+        copy.lazyDescription = this.lazyDescription;
         return copy;
     }
 
+    @Override
+    protected void restoreFields(Task state) {
+        super.restoreFields(state);
+        this.epicId = ((Subtask) state).epicId;
+    }
+
     @Override
     public boolean setId(int newId) {
         // переделал в boolean, чтобы можно было отслеживать возможность действия
@@ -25,12 +32,16 @@ public class Subtask extends Task {
         if (newId == this.epicId) {
             return false;
         }
+        beforeChange();
         this.id = newId;
+        afterChange();
         return true;
     }
 
     public void setEpicId(int epicId) {
+        beforeChange();
         this.epicId = epicId;
+        afterChange();
     }
 
     public int getEpicId() {
@@ -46,7 +57,7 @@ public class Subtask extends Task {
     public String toString() {
         return "Subtask{" +
                 "name='" + name + '\'' +
-                ", description='" + description + '\'' +
+                ", description='" + getDescription() + '\'' +
                 ", id=" + id +
                 ", taskStatus=" + taskStatus +
                 '}';
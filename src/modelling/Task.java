@@ -1,13 +1,27 @@
 package modelling;
 
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 public class Task {
     protected String name;
     protected String description;
+    // вместо description, пока описание не прочитано из снимка (ленивая загрузка)
+    protected LazyText lazyDescription;
     protected int id;
     protected TaskStatus taskStatus;
 
+    // Неизменяемая копия текущей версии (для истории); сбрасывается после любого изменения,
+    // поэтому повторные просмотры неизменённой задачи не создают новых копий.
+    // Копию могут снимать потоки ConcurrentHistoryManager, пока задачу меняет другой поток:
+    // перед копированием поле занимается меткой COPYING, изменение её сбрасывает (afterChange),
+    // и копия, снятая во время изменения, не сохраняется
+    private static final AtomicReferenceFieldUpdater<Task, Task> SNAPSHOT =
+            AtomicReferenceFieldUpdater.newUpdater(Task.class, Task.class, "snapshot");
+    private static final Task COPYING = new Task(null, null);
+    private volatile Task snapshot;
+    private boolean frozen;
+
     public Task(String name, String description) {
         this.name = name;
         this.description = description;
@@ -25,15 +39,29 @@ public class Task {
     }
 
     public void setName(String name) {
+        beforeChange();
         this.name = name;
+        afterChange();
     }
 
     public String getDescription() {
-        return description;
+        LazyText lazy = lazyDescription;
+        return lazy != null ? lazy.load() : description;
     }
 
     public void setDescription(String description) {
+        beforeChange();
         this.description = description;
+        this.lazyDescription = null;
+        afterChange();
+    }
+
+    // Описание будет прочитано при первом обращении к getDescription()
+    public void setLazyDescription(LazyText description) {
+        beforeChange();
+        this.description = null;
+        this.lazyDescription = description;
+        afterChange();
     }
 
     public int getId() {
@@ -44,7 +72,9 @@ public class Task {
         // переделал в boolean, чтобы можно было отслеживать возможность действия
         // при работе с тестами для TaskManager обнаружилось, что невозможно правильно
         // обработать случай, когда id у subtask и epic равны
+        beforeChange();
         this.id = id;
+        afterChange();
         return true;
     }
 
@@ -53,7 +83,9 @@ public class Task {
     }
 
     public void setTaskStatus(TaskStatus taskStatus) {
+        beforeChange();
         this.taskStatus = taskStatus;
+        afterChange();
     }
 
     public String getType() {
@@ -65,9 +97,62 @@ public class Task {
     public Task copy() {
         Task copy = new Task(this.name, this.description, this.taskStatus);
         copy.setId(this.id);
+        // копия читает описание из того же места, не декодируя его заранее
+        copy.lazyDescription = this.lazyDescription;
+        return copy;
+    }
+
+    // Возвращает задаче состояние, сохранённое в state методом copy() (откат пакета менеджера):
+    // ссылки на саму задачу у вызывающего кода остаются действительными
+    public void restoreFrom(Task state) {
+        beforeChange();
+        restoreFields(state);
+        afterChange();
+    }
+
+    protected void restoreFields(Task state) {
+        this.name = state.name;
+        this.description = state.description;
+        this.lazyDescription = state.lazyDescription;
+        this.id = state.id;
+        this.taskStatus = state.taskStatus;
+    }
+
+    // Копия текущей версии, которую нельзя изменять; пока задача не менялась, возвращается та же копия
+    public Task snapshot() {
+        if (frozen) {
+            return this;
+        }
+        Task current = snapshot;
+        if (current != null && current != COPYING) {
+            return current;
+        }
+        // пока копия снимается другим потоком или задача меняется, копия не запоминается
+        boolean publish = current == null && SNAPSHOT.compareAndSet(this, null, COPYING);
+        Task copy = copy();
+        copy.frozen = true;
+        if (publish) {
+            SNAPSHOT.compareAndSet(this, COPYING, copy);
+        }
         return copy;
     }
 
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    // Вызываются каждым изменяющим методом, в том числе в наследниках: до изменения и после него
+    protected void beforeChange() {
+        if (frozen) {
+            throw new UnsupportedOperationException("Снимок задачи " + id + " нельзя изменять");
+        }
+    }
+
+    // Сброс после записи полей: копия, снятая до изменения или во время него, больше не выдаётся
+    protected void afterChange() {
+        snapshot = null;
+    }
+
     @Override
     public boolean equals(Object object) {
         if (object == null || getClass() != object.getClass()) return false;
@@ -84,7 +169,7 @@ public class Task {
     public String toString() {
         return "Task{" +
                 "name='" + name + '\'' +
-                ", description='" + description + '\'' +
+                ", description='" + getDescription() + '\'' +
                 ", id=" + id +
                 ", taskStatus=" + taskStatus +
                 '}';
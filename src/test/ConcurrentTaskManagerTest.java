@@ -0,0 +1,180 @@
+package test;
+
+import manager.AsyncDiagnosticSink;
+import manager.ConcurrentTaskManager;
+import manager.DiagnosticLevel;
+import manager.InMemoryTaskManager;
+import modelling.Epic;
+import modelling.Subtask;
+import modelling.Task;
+import modelling.TaskStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConcurrentTaskManagerTest {
+    private static final int THREADS = 8;
+    private static final int EPICS_PER_THREAD = 50;
+
+    private ConcurrentTaskManager manager;
+
+    @BeforeEach
+    void setUp() {
+        manager = new ConcurrentTaskManager();
+    }
+
+    @Test
+    void shouldGenerateUniqueIdsFromManyThreads() throws Exception {
+        runInThreads(thread -> {
+            for (int i = 0; i < 500; i++) {
+                manager.createTask(new Task("Task " + thread + "-" + i, "Description"));
+            }
+        });
+
+        List<Task> tasks = manager.getAllTasks();
+        Set<Integer> ids = new HashSet<>();
+        for (Task task : tasks) {
+            ids.add(task.getId());
+        }
+        assertEquals(THREADS * 500, tasks.size(), "Все задачи должны быть созданы");
+        assertEquals(tasks.size(), ids.size(), "id задач не должны повторяться");
+        assertInIdOrder(tasks);
+    }
+
+    @Test
+    void shouldKeepEpicStatusConsistentUnderConcurrentSubtaskUpdates() throws Exception {
+        runInThreads(thread -> {
+            for (int i = 0; i < EPICS_PER_THREAD; i++) {
+                Epic epic = manager.createEpic(new Epic("Epic " + thread + "-" + i, "Description"));
+                Subtask first = manager.createSubtask(new Subtask("Sub 1", "Desc", TaskStatus.NEW, epic.getId()));
+                Subtask second = manager.createSubtask(new Subtask("Sub 2", "Desc", TaskStatus.NEW, epic.getId()));
+
+                Subtask doneFirst = new Subtask("Sub 1", "Desc", TaskStatus.DONE, epic.getId());
+                doneFirst.setId(first.getId());
+                manager.updateSubtask(doneFirst);
+                if (i % 2 == 0) {
+                    Subtask doneSecond = new Subtask("Sub 2", "Desc", TaskStatus.DONE, epic.getId());
+                    doneSecond.setId(second.getId());
+                    manager.updateSubtask(doneSecond);
+                } else {
+                    manager.deleteSubtask(second.getId());
+                }
+            }
+        });
+
+        List<Epic> epics = manager.getAllEpics();
+        List<Subtask> subtasks = manager.getAllSubtasks();
+        assertEquals(THREADS * EPICS_PER_THREAD, epics.size(), "Все эпики должны быть созданы");
+        assertEquals(THREADS * EPICS_PER_THREAD * 3 / 2, subtasks.size(), "Лишние подзадачи должны быть удалены");
+        assertInIdOrder(epics);
+        assertInIdOrder(subtasks);
+        for (Epic epic : epics) {
+            assertEquals(TaskStatus.DONE, epic.getTaskStatus(), "Все подзадачи эпика выполнены");
+        }
+    }
+
+    @Test
+    void shouldListInIdOrderLikeInMemoryManager() {
+        // id общие для всех типов: id задач идут с шагом и выходят за ёмкость их хеш-таблицы
+        for (int i = 0; i < 100; i++) {
+            manager.createTask(new Task("Task " + i, "Description"));
+            for (int j = 0; j < 10; j++) {
+                manager.createEpic(new Epic("Epic " + i + "-" + j, "Description"));
+            }
+        }
+
+        List<Task> tasks = manager.listTasks();
+        assertInIdOrder(tasks);
+        assertInIdOrder(manager.listEpics());
+        assertEquals(tasks, manager.getAllTasks());
+        assertEquals(tasks, manager.listTasks(Integer.MIN_VALUE, tasks.size()),
+                "Полный список должен совпадать с постраничным обходом");
+    }
+
+    @Test
+    void batchShouldRollbackAllChanges() {
+        Epic epic = manager.createEpic(new Epic("Epic", "Description"));
+        Subtask subtask = manager.createSubtask(new Subtask("Sub", "Desc", TaskStatus.NEW, epic.getId()));
+
+        assertThrows(IllegalStateException.class, () -> manager.executeBatch(batch -> {
+            batch.createTask(new Task("Task", "Description"));
+            batch.deleteSubtask(subtask.getId());
+            throw new IllegalStateException("Ошибка в пакете");
+        }));
+
+        assertTrue(manager.getAllTasks().isEmpty(), "Созданная в пакете задача должна быть удалена");
+        assertSame(subtask, manager.getSubtask(subtask.getId()), "Удалённая в пакете подзадача должна вернуться");
+        assertSame(epic, manager.getEpic(epic.getId()), "Должен вернуться тот же объект эпика, а не копия");
+        assertEquals(List.of(subtask.getId()), manager.getEpic(epic.getId()).getSubtaskIds(),
+                "Список подзадач эпика должен восстановиться");
+    }
+
+    @Test
+    void asyncDiagnosticsShouldDeliverOrCountEveryMessage() throws Exception {
+        AtomicInteger delivered = new AtomicInteger();
+        AtomicInteger warnings = new AtomicInteger();
+        AsyncDiagnosticSink sink = new AsyncDiagnosticSink((level, message) -> {
+            delivered.incrementAndGet();
+            if (level == DiagnosticLevel.WARN) {
+                warnings.incrementAndGet();
+            }
+        }, 64);
+        try {
+            runInThreads(thread -> {
+                InMemoryTaskManager threadManager = new InMemoryTaskManager();
+                threadManager.setDiagnosticSink(sink);
+                for (int i = 0; i < 1000; i++) {
+                    threadManager.createTask(new Task("Task", "Description"));
+                    threadManager.deleteTask(-1);
+                }
+            });
+            sink.flush();
+            assertEquals(THREADS * 2000L, delivered.get() + sink.getDroppedCount(),
+                    "Каждое сообщение должно быть передано или учтено как отброшенное");
+            assertEquals(0, sink.getPendingCount());
+        } finally {
+            sink.close();
+        }
+        assertTrue(warnings.get() > 0, "Предупреждения о ненайденной задаче должны доходить до получателя");
+    }
+
+    private static void assertInIdOrder(List<? extends Task> tasks) {
+        for (int i = 1; i < tasks.size(); i++) {
+            assertTrue(tasks.get(i - 1).getId() < tasks.get(i).getId(),
+                    "Списки должны идти по возрастанию id, как у InMemoryTaskManager");
+        }
+    }
+
+    private interface ThreadBody {
+        void run(int thread) throws Exception;
+    }
+
+    private static void runInThreads(ThreadBody body) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                int thread = i;
+                futures.add(executor.submit(() -> {
+                    body.run(thread);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
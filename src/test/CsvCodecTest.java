@@ -0,0 +1,57 @@
+package test;
+
+import formatters.CsvCodec;
+import modelling.Subtask;
+import modelling.Task;
+import modelling.TaskStatus;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CsvCodecTest {
+
+    private static Task read(CsvCodec codec, String line) {
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        return codec.read(bytes, 0, bytes.length);
+    }
+
+    @Test
+    void shouldRejectSubtaskWithoutEpicField() {
+        // загрузчики переиспользуют кодек, поэтому поля прошлой записи остаются в нём
+        CsvCodec codec = new CsvCodec(0);
+        Subtask previous = (Subtask) read(codec, "3,Subtask,Sub,NEW,Desc,1");
+        assertEquals(1, previous.getEpicId());
+
+        assertThrows(IllegalArgumentException.class, () -> read(codec, "4,Subtask,Sub,DONE,Desc"),
+                "Подзадача без поля эпика не должна получать эпик предыдущей записи");
+    }
+
+    @Test
+    void shouldReadTaskWithoutTrailingEpicField() {
+        CsvCodec codec = new CsvCodec(0);
+        Task task = read(codec, "5,Task,\"Name, with comma\",IN_PROGRESS,Desc");
+
+        assertEquals(5, task.getId());
+        assertEquals("Name, with comma", task.getName());
+        assertEquals(TaskStatus.IN_PROGRESS, task.getTaskStatus());
+    }
+
+    @Test
+    void shouldKeepNullAndEmptyDescriptionApart() {
+        CsvCodec codec = new CsvCodec(0);
+        Task withoutDescription = new Task("Name", null, TaskStatus.NEW);
+        withoutDescription.setId(1);
+        Task emptyDescription = new Task("Name", "", TaskStatus.NEW);
+        emptyDescription.setId(2);
+
+        assertNull(CsvCodec.fromCsvString(CsvCodec.toCsvString(withoutDescription)).getDescription());
+        assertEquals("", CsvCodec.fromCsvString(CsvCodec.toCsvString(emptyDescription)).getDescription());
+
+        read(codec, "1,Task,Name,NEW,,");
+        assertFalse(codec.hasDescription());
+        read(codec, "2,Task,Name,NEW,\"\",");
+        assertTrue(codec.hasDescription(), "Пустая строка в кавычках - не null");
+    }
+}
@@ -1,7 +1,18 @@
 package test;
 
+import exceptions.ManagerSaveException;
+import manager.DescriptionLoading;
+import manager.DiagnosticSink;
+import manager.DurabilityPolicy;
 import manager.FileBackedTaskManager;
 import manager.InMemoryTaskManager;
+import manager.LoadStatistics;
+import manager.Managers;
+import manager.PersistenceMetrics;
+import manager.PersistenceMode;
+import manager.PersistenceSettings;
+import manager.SnapshotConverter;
+import manager.SnapshotFormat;
 import modelling.Epic;
 import modelling.Subtask;
 import modelling.Task;
@@ -12,6 +23,17 @@ import org.junit.jupiter.api.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -31,6 +53,17 @@ public class FileBackedTaskManagerTest {
         if (tempFile.exists()) {
             tempFile.delete();
         }
+        new File(tempFile.getPath() + ".journal").delete();
+        new File(tempFile.getPath() + ".journal.old").delete();
+        new File(tempFile.getPath() + ".history").delete();
+        File segments = new File(tempFile.getPath() + ".segments");
+        File[] segmentFiles = segments.listFiles();
+        if (segmentFiles != null) {
+            for (File segmentFile : segmentFiles) {
+                segmentFile.delete();
+            }
+        }
+        segments.delete();
     }
 
     private boolean areTasksEqual(Task t1, Task t2) {
@@ -78,4 +111,580 @@ public class FileBackedTaskManagerTest {
         assertEquals(2, loadedManager.getAllEpics().size(), "Должно быть 2 эпика");
         assertEquals(3, loadedManager.getAllSubtasks().size(), "Должно быть 3 подзадачи");
     }
+
+    @Test
+    void shouldReplayJournalOnLoad() {
+        PersistenceSettings settings = new PersistenceSettings();
+        settings.setMode(PersistenceMode.JOURNAL);
+        FileBackedTaskManager journaled = FileBackedTaskManager.create(tempFile, settings);
+
+        Task task = journaled.createTask(new Task("Task 1", "Description 1"));
+        Epic epic = journaled.createEpic(new Epic("Epic 1", "Description of epic 1"));
+        Subtask subtask = journaled.createSubtask(new Subtask("Subtask 1",
+                "Subtask 1 of Epic 1", TaskStatus.DONE, epic.getId()));
+        journaled.deleteTask(task.getId());
+        journaled.close();
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(tempFile, settings);
+
+        assertTrue(loadedManager.getAllTasks().isEmpty(), "Удалённый таск не должен восстановиться");
+        assertTrue(areTasksEqual(subtask, loadedManager.getSubtask(subtask.getId())), "Подзадача должна восстановиться из журнала");
+        assertEquals(TaskStatus.DONE, loadedManager.getEpic(epic.getId()).getTaskStatus(), "Статус эпика должен восстановиться из журнала");
+        assertEquals(1, loadedManager.getAllEpicSubtasks(epic.getId()).size(), "Связь эпика с подзадачей должна восстановиться");
+        loadedManager.close();
+    }
+
+    @Test
+    void shouldSkipTornJournalRecord() throws IOException {
+        PersistenceSettings settings = new PersistenceSettings();
+        settings.setMode(PersistenceMode.JOURNAL);
+        FileBackedTaskManager journaled = FileBackedTaskManager.create(tempFile, settings);
+        Task kept = journaled.createTask(new Task("Task 1", "Description 1"));
+        Task torn = journaled.createTask(new Task("Task 2", "a fairly long description"));
+        journaled.close();
+
+        // обрываем последнюю запись, как при аварийном завершении посреди записи
+        File journalFile = new File(tempFile.getPath() + ".journal");
+        try (RandomAccessFile journal = new RandomAccessFile(journalFile, "rw")) {
+            journal.setLength(journal.length() - 12);
+        }
+
+        List<String> warnings = new ArrayList<>();
+        DiagnosticSink previous = Managers.getDefaultDiagnosticSink();
+        Managers.setDefaultDiagnosticSink((level, message) -> warnings.add(level + " " + message));
+        FileBackedTaskManager loadedManager;
+        try {
+            loadedManager = FileBackedTaskManager.loadFromFile(tempFile, settings);
+        } finally {
+            Managers.setDefaultDiagnosticSink(previous);
+        }
+
+        assertTrue(areTasksEqual(kept, loadedManager.getTask(kept.getId())), "Завершённая операция должна восстановиться");
+        assertNull(loadedManager.getTask(torn.getId()), "Оборванная запись не должна применяться");
+        assertEquals(1, warnings.size(), "Об оборванной операции должно сообщаться через DiagnosticSink");
+
+        // новые записи не должны дописываться к оборванной строке
+        Task added = loadedManager.createTask(new Task("Task 3", "After crash"));
+        loadedManager.close();
+        FileBackedTaskManager reloaded = FileBackedTaskManager.loadFromFile(tempFile, settings);
+        assertTrue(areTasksEqual(added, reloaded.getTask(added.getId())), "Изменение после сбоя должно сохраниться");
+        assertTrue(areTasksEqual(kept, reloaded.getTask(kept.getId())));
+        assertEquals(List.of(kept, added), reloaded.listTasks());
+        reloaded.close();
+    }
+
+    @Test
+    void shouldSkipIncompleteOperationAtJournalEnd() throws IOException {
+        PersistenceSettings settings = new PersistenceSettings();
+        settings.setMode(PersistenceMode.JOURNAL);
+        FileBackedTaskManager journaled = FileBackedTaskManager.create(tempFile, settings);
+        Epic epic = journaled.createEpic(new Epic("Epic 1", "Description of epic 1"));
+        Subtask done = journaled.createSubtask(new Subtask("Subtask 1", "Done", TaskStatus.DONE, epic.getId()));
+        Subtask added = journaled.createSubtask(new Subtask("Subtask 2", "New", TaskStatus.NEW, epic.getId()));
+        journaled.close();
+
+        // сбой между записью подзадачи и записью её эпика: полная строка подзадачи уже на диске
+        File journalFile = new File(tempFile.getPath() + ".journal");
+        List<String> records = Files.readAllLines(journalFile.toPath());
+        int subtaskRecord = -1;
+        for (int i = 0; i < records.size(); i++) {
+            if (records.get(i).contains("Subtask 2")) {
+                subtaskRecord = i;
+            }
+        }
+        Files.write(journalFile.toPath(), records.subList(0, subtaskRecord + 1));
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(tempFile, settings);
+
+        assertNull(loadedManager.getSubtask(added.getId()), "Незавершённая операция не должна применяться частично");
+        assertTrue(areTasksEqual(done, loadedManager.getSubtask(done.getId())));
+        assertEquals(TaskStatus.DONE, loadedManager.getEpic(epic.getId()).getTaskStatus(),
+                "Статус эпика должен соответствовать восстановленным подзадачам");
+        assertEquals(1, loadedManager.getAllEpicSubtasks(epic.getId()).size());
+
+        // END следующей операции не должен завершить оставшиеся от прерванной записи
+        Task task = loadedManager.createTask(new Task("Task", "After crash"));
+        loadedManager.close();
+        FileBackedTaskManager reloaded = FileBackedTaskManager.loadFromFile(tempFile, settings);
+        assertEquals(List.of(task), reloaded.listTasks(), "Изменение после сбоя должно сохраниться");
+        assertTrue(areTasksEqual(task, reloaded.getTask(task.getId())));
+        assertNull(reloaded.getSubtask(added.getId()), "Прерванная операция не должна вернуться после перезагрузки");
+        assertEquals(List.of(done.getId()), reloaded.getEpic(epic.getId()).getSubtaskIds());
+        reloaded.close();
+    }
+
+    @Test
+    void shouldCompactJournalIntoSnapshot() {
+        PersistenceSettings settings = new PersistenceSettings();
+        settings.setMode(PersistenceMode.JOURNAL);
+        settings.setCompactionThresholdBytes(256);
+        FileBackedTaskManager journaled = FileBackedTaskManager.create(tempFile, settings);
+
+        for (int i = 0; i < 50; i++) {
+            journaled.createTask(new Task("Task " + i, "Description " + i));
+        }
+        journaled.close();
+
+        assertTrue(tempFile.length() > 256, "Журнал должен сворачиваться в снимок");
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(tempFile);
+        assertEquals(50, loadedManager.getAllTasks().size(), "Должно быть 50 тасков");
+    }
+
+    @Test
+    void shouldPersistInBackgroundInAsyncMode() {
+        PersistenceSettings settings = new PersistenceSettings();
+        settings.setMode(PersistenceMode.ASYNC);
+        // маленькая очередь: операции будут ждать поток записи
+        settings.setAsyncQueueCapacity(4);
+        FileBackedTaskManager async = FileBackedTaskManager.create(tempFile, settings);
+
+        Epic epic = async.createEpic(new Epic("Epic", "Description"));
+        for (int i = 0; i < 200; i++) {
+            async.createSubtask(new Subtask("Subtask " + i, "Description " + i, TaskStatus.NEW, epic.getId()));
+        }
+        Task task = async.createTask(new Task("Task", "Description"));
+        Task updated = new Task("Task", "Updated", TaskStatus.DONE);
+        updated.setId(task.getId());
+        async.updateTask(task.getId(), updated);
+        async.deleteSubtask(epic.getId() + 1);
+        async.awaitDurable();
+
+        PersistenceMetrics metrics = async.getPersistenceMetrics();
+        assertEquals(0, metrics.getLagOperations(), "После awaitDurable всё должно быть на диске");
+        assertEquals(0, metrics.getQueueDepth());
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile);
+        assertEquals(199, loaded.getAllSubtasks().size(), "Подзадачи должны восстановиться из журнала");
+        assertTrue(areTasksEqual(updated, loaded.getTask(task.getId())), "Должна восстановиться последняя версия задачи");
+
+        // снимок не должен перекрываться старыми изменениями из очереди
+        updated.setDescription("После снимка");
+        async.updateTask(task.getId(), updated);
+        async.save();
+        async.close();
+        assertEquals("После снимка", FileBackedTaskManager.loadFromFile(tempFile).getTask(task.getId()).getDescription());
+    }
+
+    @Test
+    void shouldAwaitDurableWithoutManagerLockInAsyncMode() throws Exception {
+        PersistenceSettings settings = new PersistenceSettings();
+        settings.setMode(PersistenceMode.ASYNC);
+        FileBackedTaskManager async = FileBackedTaskManager.create(tempFile, settings);
+        async.createTask(new Task("Task", "Description"));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // замок менеджера занят, как во время изменения в другом потоке: ожидание не должно его требовать
+            synchronized (async) {
+                Future<Boolean> durable = executor.submit(() -> async.awaitDurable(5, TimeUnit.SECONDS));
+                assertTrue(durable.get(5, TimeUnit.SECONDS), "Ожидание записи не должно брать замок менеджера");
+                executor.submit(async::flush).get(5, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        async.close();
+    }
+
+    @Test
+    void shouldCoalesceOperationsWithGroupCommit() {
+        PersistenceSettings settings = new PersistenceSettings();
+        settings.setMode(PersistenceMode.JOURNAL);
+        settings.setDurabilityPolicy(DurabilityPolicy.GROUP_COMMIT);
+        settings.setGroupCommitIntervalMillis(60_000);
+        settings.setGroupCommitMaxOperations(10);
+        FileBackedTaskManager journaled = FileBackedTaskManager.create(tempFile, settings);
+
+        for (int i = 0; i < 30; i++) {
+            journaled.createTask(new Task("Task " + i, "Description " + i));
+        }
+
+        PersistenceMetrics metrics = journaled.getPersistenceMetrics();
+        assertEquals(3, metrics.getFlushCount(), "30 операций должны уйти на диск тремя сбросами");
+        assertEquals(10.0, metrics.getAverageOperationsPerFlush());
+        journaled.close();
+
+        assertEquals(30, FileBackedTaskManager.loadFromFile(tempFile).getAllTasks().size(), "Должно быть 30 тасков");
+    }
+
+    @Test
+    void shouldSaveSnapshotAfterGroupCommitIntervalWithoutNewOperations() throws InterruptedException {
+        PersistenceSettings settings = new PersistenceSettings();
+        settings.setDurabilityPolicy(DurabilityPolicy.GROUP_COMMIT);
+        settings.setGroupCommitIntervalMillis(300);
+        settings.setGroupCommitMaxOperations(1000);
+        FileBackedTaskManager grouped = FileBackedTaskManager.create(tempFile, settings);
+
+        grouped.createTask(new Task("Task 1", "Description 1"));
+        grouped.createTask(new Task("Task 2", "Description 2"));
+        assertEquals(0, FileBackedTaskManager.loadFromFile(tempFile).getAllTasks().size(),
+                "До истечения интервала снимок не должен сохраняться");
+
+        // новых операций нет: снимок должен сохранить таймер
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (grouped.getPersistenceMetrics().getFlushCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, grouped.getPersistenceMetrics().getFlushCount(), "Изменения должны уйти на диск одним сохранением");
+        assertEquals(2, FileBackedTaskManager.loadFromFile(tempFile).getAllTasks().size(), "Должно быть 2 таска");
+        grouped.close();
+    }
+
+    @Test
+    void shouldPersistBatchOnce() {
+        Epic epic = manager.createEpic(new Epic("Epic 1", "Description of epic 1"));
+        long flushesBefore = manager.getPersistenceMetrics().getFlushCount();
+
+        manager.executeBatch(batch -> {
+            for (int i = 0; i < 100; i++) {
+                batch.createSubtask(new Subtask("Subtask " + i, "Description " + i, TaskStatus.NEW, epic.getId()));
+            }
+        });
+
+        assertEquals(flushesBefore + 1, manager.getPersistenceMetrics().getFlushCount(), "Пакет должен сохраняться один раз");
+        assertEquals(100, FileBackedTaskManager.loadFromFile(tempFile).getAllSubtasks().size(), "Должно быть 100 подзадач");
+    }
+
+    @Test
+    void shouldReportLoadStatistics() {
+        for (int i = 0; i < 3; i++) {
+            manager.createTask(new Task("Task " + i, "Description " + i));
+        }
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(tempFile);
+        LoadStatistics statistics = loadedManager.getLastLoadStatistics();
+
+        assertEquals(3, statistics.getRecords(), "Должно быть загружено 3 записи");
+        assertEquals(tempFile.length(), statistics.getBytes(), "Файл должен быть прочитан целиком");
+    }
+
+    @Test
+    void shouldKeepCommasQuotesAndNewLinesInFields() {
+        Task task = manager.createTask(new Task("Купить молоко, хлеб", "Сказать \"спасибо\"\nи уйти"));
+        Epic epic = manager.createEpic(new Epic("Эпик, с запятой", "Первая строка\r\nвторая строка"));
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(tempFile);
+
+        assertTrue(areTasksEqual(task, loadedManager.getTask(task.getId())), "Таск должен сохраниться без искажений");
+        assertTrue(areTasksEqual(epic, loadedManager.getEpic(epic.getId())), "Эпик должен сохраниться без искажений");
+    }
+
+    @Test
+    void shouldLoadInParallelSameAsSequentially() {
+        for (int i = 0; i < 50; i++) {
+            Epic epic = manager.createEpic(new Epic("Epic " + i, "Описание, с запятой\nи переводом строки"));
+            manager.createSubtask(new Subtask("Subtask " + i, "\"В кавычках\"", TaskStatus.DONE, epic.getId()));
+            manager.createTask(new Task("Task " + i, "Description " + i));
+        }
+
+        PersistenceSettings settings = new PersistenceSettings();
+        settings.setLoadParallelism(4);
+        settings.setParallelLoadThresholdBytes(0);
+        FileBackedTaskManager parallelManager = FileBackedTaskManager.loadFromFile(tempFile, settings);
+        FileBackedTaskManager sequentialManager = FileBackedTaskManager.loadFromFile(tempFile);
+
+        assertEquals(150, parallelManager.getLastLoadStatistics().getRecords(), "Должны быть загружены все записи");
+        for (Epic epic : sequentialManager.getAllEpics()) {
+            Epic loadedEpic = parallelManager.getEpic(epic.getId());
+            assertTrue(areTasksEqual(epic, loadedEpic), "Эпики должны совпадать");
+            assertEquals(epic.getSubtaskIds(), loadedEpic.getSubtaskIds(), "Подзадачи эпика должны совпадать");
+            assertEquals(TaskStatus.DONE, loadedEpic.getTaskStatus(), "Статус эпика должен сохраниться");
+        }
+        for (Subtask subtask : sequentialManager.getAllSubtasks()) {
+            assertTrue(areTasksEqual(subtask, parallelManager.getSubtask(subtask.getId())), "Подзадачи должны совпадать");
+        }
+        for (Task task : sequentialManager.getAllTasks()) {
+            assertTrue(areTasksEqual(task, parallelManager.getTask(task.getId())), "Задачи должны совпадать");
+        }
+    }
+
+    @Test
+    void shouldSaveAndLoadBinarySnapshot() {
+        PersistenceSettings settings = new PersistenceSettings();
+        settings.setSnapshotFormat(SnapshotFormat.BINARY);
+        FileBackedTaskManager binaryManager = FileBackedTaskManager.create(tempFile, settings);
+
+        Task task = binaryManager.createTask(new Task("Task 1", "Description 1"));
+        Epic epic = binaryManager.createEpic(new Epic("Epic 1", "Description of epic 1"));
+        Subtask subtask = binaryManager.createSubtask(new Subtask("Subtask 1",
+                "Subtask 1 of Epic 1", TaskStatus.IN_PROGRESS, epic.getId()));
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(tempFile);
+
+        assertTrue(areTasksEqual(task, loadedManager.getTask(task.getId())));
+        assertTrue(areTasksEqual(epic, loadedManager.getEpic(epic.getId())));
+        assertTrue(areTasksEqual(subtask, loadedManager.getSubtask(subtask.getId())));
+        assertEquals(1, loadedManager.getAllEpicSubtasks(epic.getId()).size());
+    }
+
+    @Test
+    void shouldConvertBetweenCsvAndBinary() throws IOException {
+        Epic epic = manager.createEpic(new Epic("Epic 1", "Description of epic 1"));
+        for (int i = 0; i < 10; i++) {
+            manager.createSubtask(new Subtask("Subtask", "Description " + i, TaskStatus.NEW, epic.getId()));
+        }
+        File binaryFile = File.createTempFile("tasks", ".bin");
+        File csvFile = File.createTempFile("tasks", ".csv");
+
+        try {
+            SnapshotConverter.convert(tempFile, binaryFile, SnapshotFormat.BINARY);
+            SnapshotConverter.convert(binaryFile, csvFile, SnapshotFormat.CSV);
+
+            assertTrue(binaryFile.length() < tempFile.length(), "Бинарный снимок должен быть компактнее CSV");
+            assertEquals(10, FileBackedTaskManager.loadFromFile(binaryFile).getAllSubtasks().size());
+            assertEquals(10, FileBackedTaskManager.loadFromFile(csvFile).getAllEpicSubtasks(epic.getId()).size());
+        } finally {
+            binaryFile.delete();
+            csvFile.delete();
+        }
+    }
+
+    @Test
+    void shouldRejectCorruptedSnapshot() throws IOException {
+        for (SnapshotFormat format : SnapshotFormat.values()) {
+            PersistenceSettings settings = new PersistenceSettings();
+            settings.setSnapshotFormat(format);
+            FileBackedTaskManager formatManager = FileBackedTaskManager.create(tempFile, settings);
+            for (int i = 0; i < 20; i++) {
+                formatManager.createTask(new Task("Task " + i, "Description " + i));
+            }
+            assertFalse(new File(tempFile.getPath() + ".tmp").exists(), "Временный файл должен быть переименован");
+            assertEquals(20, FileBackedTaskManager.loadFromFile(tempFile).getAllTasks().size());
+
+            try (RandomAccessFile raf = new RandomAccessFile(tempFile, "rw")) {
+                long middle = raf.length() / 2;
+                raf.seek(middle);
+                int original = raf.read();
+                raf.seek(middle);
+                raf.write(original ^ 1);
+            }
+            assertThrows(ManagerSaveException.class, () -> FileBackedTaskManager.loadFromFile(tempFile),
+                    "Повреждённый снимок (" + format + ") не должен загружаться");
+        }
+    }
+
+    @Test
+    void shouldLoadSnapshotWithoutChecksum() throws IOException {
+        manager.createTask(new Task("Task 1", "Description 1"));
+        // снимок в старом формате: без строки с контрольной суммой
+        String content = Files.readString(tempFile.toPath());
+        assertTrue(content.contains("#crc32c="), "Снимок должен заканчиваться контрольной суммой");
+        Files.writeString(tempFile.toPath(), content.substring(0, content.lastIndexOf("#crc32c=")));
+
+        assertEquals(1, FileBackedTaskManager.loadFromFile(tempFile).getAllTasks().size());
+    }
+
+    @Test
+    void shouldReportOrphanSubtaskThroughDiagnosticSink() throws IOException {
+        Files.writeString(tempFile.toPath(), "id,type,name,status,description,epic\n"
+                + "1,Subtask,Sub,NEW,Desc,7\n");
+
+        List<String> warnings = new ArrayList<>();
+        DiagnosticSink previous = Managers.getDefaultDiagnosticSink();
+        Managers.setDefaultDiagnosticSink((level, message) -> warnings.add(level + " " + message));
+        try {
+            FileBackedTaskManager.loadFromFile(tempFile);
+        } finally {
+            Managers.setDefaultDiagnosticSink(previous);
+        }
+        assertEquals(List.of("WARN Ошибка: Subtask 1 относится к несуществующему эпику 7"), warnings,
+                "Подзадача без эпика должна сообщаться через DiagnosticSink, а не в System.err");
+    }
+
+    private Set<String> segmentFiles() {
+        String[] names = new File(tempFile.getPath() + ".segments").list();
+        return names == null ? new TreeSet<>() : new TreeSet<>(Arrays.asList(names));
+    }
+
+    @Test
+    void shouldReportUndeletableSegmentFilesThroughDiagnosticSink() throws IOException {
+        PersistenceSettings settings = new PersistenceSettings();
+        settings.setMode(PersistenceMode.SEGMENTED);
+        FileBackedTaskManager.create(tempFile, settings).createTask(new Task("Task", "Description"));
+        // непустую директорию File.delete() удалить не может
+        File stray = new File(tempFile.getPath() + ".segments", "stray");
+        File strayFile = new File(stray, "file");
+        assertTrue(stray.mkdir());
+        assertTrue(strayFile.createNewFile());
+
+        List<String> warnings = new ArrayList<>();
+        DiagnosticSink previous = Managers.getDefaultDiagnosticSink();
+        Managers.setDefaultDiagnosticSink((level, message) -> warnings.add(level + " " + message));
+        try {
+            FileBackedTaskManager.loadFromFile(tempFile, settings);
+        } finally {
+            Managers.setDefaultDiagnosticSink(previous);
+            strayFile.delete();
+            stray.delete();
+        }
+        assertEquals(List.of("WARN Не удалось удалить файл сегмента: " + stray.getPath()), warnings,
+                "О неудалённом файле должно сообщаться через DiagnosticSink");
+    }
+
+    @Test
+    void shouldRewriteOnlyChangedSegments() {
+        PersistenceSettings settings = new PersistenceSettings();
+        settings.setMode(PersistenceMode.SEGMENTED);
+        settings.setSegmentSize(4);
+        FileBackedTaskManager segmentedManager = FileBackedTaskManager.create(tempFile, settings);
+
+        // id 0-1 - эпики, 2-11 - подзадачи, 12-14 - задачи
+        Epic first = segmentedManager.createEpic(new Epic("Epic 1", "Description 1"));
+        Epic second = segmentedManager.createEpic(new Epic("Epic 2", "Description 2"));
+        for (int i = 0; i < 10; i++) {
+            segmentedManager.createSubtask(new Subtask("Subtask " + i, "Description " + i, TaskStatus.NEW,
+                    i % 2 == 0 ? first.getId() : second.getId()));
+        }
+        for (int i = 0; i < 3; i++) {
+            segmentedManager.createTask(new Task("Task " + i, "Description " + i));
+        }
+        Set<String> before = segmentFiles();
+        assertEquals(5, before.size(), "Эпики, три диапазона подзадач и задачи - в отдельных сегментах");
+
+        Subtask changed = new Subtask("Subtask 2", "Description 2", TaskStatus.DONE, first.getId());
+        changed.setId(4);
+        segmentedManager.updateSubtask(changed);
+
+        Set<String> after = segmentFiles();
+        Set<String> rewritten = new TreeSet<>(after);
+        rewritten.removeAll(before);
+        assertEquals(before.size(), after.size(), "Прежние файлы переписанных сегментов должны быть удалены");
+        for (String name : rewritten) {
+            assertTrue(name.startsWith("Subtask-1.") || name.startsWith("Epic-0."),
+                    "Переписываться должны только сегмент подзадачи и её эпика: " + name);
+        }
+        assertTrue(rewritten.stream().anyMatch(name -> name.startsWith("Subtask-1.")));
+
+        segmentedManager.deleteEpic(second.getId());
+        FileBackedTaskManager reloaded = FileBackedTaskManager.loadFromFile(tempFile, settings);
+        assertEquals(5, reloaded.getAllSubtasks().size(), "Подзадачи удалённого эпика не должны загружаться");
+        assertEquals(3, reloaded.getAllTasks().size());
+        assertEquals(TaskStatus.DONE, reloaded.getSubtask(4).getTaskStatus(), "Изменение должно сохраниться");
+        assertNull(reloaded.getEpic(second.getId()));
+
+        // в обычном режиме доска сразу собирается обратно в один снимок
+        FileBackedTaskManager single = FileBackedTaskManager.loadFromFile(tempFile);
+        assertEquals(5, single.getAllSubtasks().size());
+        assertTrue(segmentFiles().isEmpty(), "Сегменты больше не нужны");
+        assertEquals(5, FileBackedTaskManager.loadFromFile(tempFile).getAllSubtasks().size());
+    }
+
+    @Test
+    void shouldRestoreHistoryOrderAfterReload() throws IOException {
+        Task first = manager.createTask(new Task("Task 1", "Description 1"));
+        Epic epic = manager.createEpic(new Epic("Epic 1", "Description of epic 1"));
+        Subtask subtask = manager.createSubtask(new Subtask("Subtask 1", "Subtask 1 of Epic 1",
+                TaskStatus.NEW, epic.getId()));
+        Task deleted = manager.createTask(new Task("Task 2", "Description 2"));
+
+        manager.getSubtask(subtask.getId());
+        manager.getTask(deleted.getId());
+        manager.getTask(first.getId());
+        manager.getEpic(epic.getId());
+        manager.getSubtask(subtask.getId());
+        manager.close();
+
+        // история записана до удаления задачи: при загрузке её id просто пропускается
+        File historyFile = new File(tempFile.getPath() + ".history");
+        byte[] staleHistory = Files.readAllBytes(historyFile.toPath());
+        manager.deleteTask(deleted.getId());
+        Files.write(historyFile.toPath(), staleHistory);
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(tempFile);
+        List<Task> history = loadedManager.getHistoryManager();
+        assertEquals(3, history.size(), "Удалённая задача не должна вернуться в историю");
+        assertEquals(first.getId(), history.get(0).getId());
+        assertEquals(epic.getId(), history.get(1).getId());
+        assertEquals(subtask.getId(), history.get(2).getId(), "Порядок обращений должен сохраниться");
+        assertTrue(areTasksEqual(subtask, history.get(2)));
+
+        // повреждённый файл истории не мешает загрузке доски
+        Files.writeString(historyFile.toPath(), "#history\n1,x\n");
+        FileBackedTaskManager withoutHistory = FileBackedTaskManager.loadFromFile(tempFile);
+        assertTrue(withoutHistory.getHistoryManager().isEmpty());
+        assertEquals(1, withoutHistory.getAllTasks().size());
+    }
+
+    @Test
+    void shouldReplaceHistoryTogetherWithSnapshot() {
+        File historyFile = new File(tempFile.getPath() + ".history");
+        Task task = manager.createTask(new Task("Task 1", "Description 1"));
+        manager.getTask(task.getId());
+        manager.save();
+
+        FileBackedTaskManager newBoard = new FileBackedTaskManager(tempFile);
+        assertTrue(historyFile.exists(), "Конструктор не должен удалять историю, как не удаляет и снимок");
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(tempFile);
+        assertEquals(1, loadedManager.getHistoryManager().size());
+        assertEquals(1, loadedManager.getAllTasks().size());
+
+        newBoard.createTask(new Task("Task 2", "Description 2"));
+        assertTrue(FileBackedTaskManager.loadFromFile(tempFile).getHistoryManager().isEmpty(),
+                "История прежней доски заменяется вместе со снимком");
+    }
+
+    @Test
+    void shouldWriteHistoryOnlyOnSaveOrClose() {
+        File historyFile = new File(tempFile.getPath() + ".history");
+        Task task = manager.createTask(new Task("Task 1", "Description 1"));
+        manager.getTask(task.getId());
+        manager.createTask(new Task("Task 2", "Description 2"));
+        assertFalse(historyFile.exists(), "Изменения не должны каждый раз переписывать историю");
+
+        manager.save();
+        assertTrue(historyFile.exists(), "Явный save() сохраняет и историю");
+        assertEquals(1, FileBackedTaskManager.loadFromFile(tempFile).getHistoryManager().size());
+    }
+
+    @Test
+    void shouldReportOnlyDamagedHistoryFile() throws IOException {
+        manager.createTask(new Task("Task 1", "Description 1"));
+        File historyFile = new File(tempFile.getPath() + ".history");
+        historyFile.delete();
+
+        List<String> warnings = new ArrayList<>();
+        DiagnosticSink previous = Managers.getDefaultDiagnosticSink();
+        Managers.setDefaultDiagnosticSink((level, message) -> warnings.add(level + " " + message));
+        try {
+            FileBackedTaskManager.loadFromFile(tempFile);
+            assertTrue(warnings.isEmpty(), "Отсутствующий файл истории - это пустая история, а не ошибка");
+
+            Files.writeString(historyFile.toPath(), "#history\n1,x\n");
+            FileBackedTaskManager.loadFromFile(tempFile);
+        } finally {
+            Managers.setDefaultDiagnosticSink(previous);
+        }
+        assertEquals(1, warnings.size(), "О повреждённом файле истории должно сообщаться через DiagnosticSink");
+        assertTrue(warnings.get(0).startsWith("WARN История просмотров не загружена"));
+    }
+
+    @Test
+    void shouldLoadDescriptionsLazily() {
+        for (SnapshotFormat format : SnapshotFormat.values()) {
+            for (DescriptionLoading loading : List.of(DescriptionLoading.LAZY, DescriptionLoading.LAZY_CACHED)) {
+                PersistenceSettings settings = new PersistenceSettings();
+                settings.setSnapshotFormat(format);
+                FileBackedTaskManager writer = FileBackedTaskManager.create(tempFile, settings);
+                Task task = writer.createTask(new Task("Купить молоко, хлеб", "Сказать \"спасибо\"\nи уйти"));
+                Epic epic = writer.createEpic(new Epic("Переезд", "Собрать вещи, купить коробки"));
+                Subtask subtask = writer.createSubtask(new Subtask("Subtask 1", "", TaskStatus.DONE, epic.getId()));
+
+                settings.setDescriptionLoading(loading);
+                FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(tempFile, settings);
+                String message = "Описание должно читаться без искажений: " + format + ", " + loading;
+                assertTrue(areTasksEqual(task, loadedManager.getTask(task.getId())), message);
+                assertTrue(areTasksEqual(epic, loadedManager.getEpic(epic.getId())), message);
+                assertTrue(areTasksEqual(subtask, loadedManager.getSubtask(subtask.getId())), message);
+                assertEquals(List.of(epic.getId()), loadedManager.search("коробки", 10),
+                        "Поиск должен находить текст ещё не прочитанных описаний");
+
+                // снимок перезаписан поверх отображённого файла - прежние описания остаются доступными
+                loadedManager.updateTask(task.getId(), new Task("Купить кефир", task.getDescription()));
+                loadedManager.createTask(new Task("Task 2", "Description 2"));
+                assertEquals("Собрать вещи, купить коробки", loadedManager.getEpic(epic.getId()).getDescription());
+                assertEquals(task.getDescription(), loadedManager.getTask(task.getId()).getDescription());
+                assertEquals(List.of(task.getId()), loadedManager.search("кефир", 10));
+            }
+        }
+    }
 }
@@ -1,7 +1,12 @@
 package test;
 
+import manager.ConcurrentHistoryManager;
+import manager.HistoryEvictionPolicy;
+import manager.HistoryManager;
+import manager.HistorySettings;
 import manager.InMemoryHistoryManager;
 import manager.InMemoryTaskManager;
+import manager.Managers;
 import modelling.Epic;
 import modelling.Subtask;
 import modelling.Task;
@@ -9,6 +14,11 @@ import modelling.TaskStatus;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.List;
 
 import static modelling.TaskStatus.NEW;
@@ -296,5 +306,175 @@ public class HistoryTest {
         history = taskManager.getHistoryManager();
         assertEquals(0, history.size());
     }
-}
 
+    @Test
+    void concurrentHistoryShouldKeepLastAccessOrder() {
+        ConcurrentHistoryManager concurrentHistory = new ConcurrentHistoryManager();
+        Task first = taskManager.createTask(new Task("First", "Desc"));
+        Task second = taskManager.createTask(new Task("Second", "Desc"));
+
+        concurrentHistory.add(first);
+        concurrentHistory.add(second);
+        concurrentHistory.add(first);
+
+        List<Task> history = concurrentHistory.getHistory();
+        assertEquals(List.of(second, first), history, "Повторное обращение переносит задачу в конец");
+
+        concurrentHistory.remove(second.getId());
+        assertEquals(List.of(first), concurrentHistory.getHistory(), "Удалённая задача не должна быть в истории");
+    }
+
+    @Test
+    void concurrentHistoryShouldHideRemovedTasksAndAcceptLaterViews() {
+        ConcurrentHistoryManager concurrentHistory = new ConcurrentHistoryManager();
+        Task first = taskManager.createTask(new Task("First", "Desc"));
+        Task second = taskManager.createTask(new Task("Second", "Desc"));
+
+        for (int i = 0; i < 3000; i++) {
+            Task removed = new Task("Removed " + i, "Desc");
+            removed.setId(1000 + i);
+            concurrentHistory.add(removed);
+            concurrentHistory.remove(removed.getId());
+        }
+        concurrentHistory.add(first);
+        concurrentHistory.add(second);
+        concurrentHistory.remove(first.getId());
+
+        List<Task> visited = new ArrayList<>();
+        concurrentHistory.forEach(visited::add);
+        assertEquals(List.of(second), visited, "Удалённые задачи не должны попадать в обход истории");
+
+        concurrentHistory.add(first);
+        assertEquals(List.of(second, first), concurrentHistory.getHistory(),
+                "Обращение после удаления снова добавляет задачу в историю");
+    }
+
+    @Test
+    void concurrentHistoryShouldAcceptAddsFromManyThreads() throws InterruptedException {
+        ConcurrentHistoryManager concurrentHistory = new ConcurrentHistoryManager();
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    Task task = new Task("Task " + (i % 100), "Desc");
+                    task.setId(i % 100);
+                    concurrentHistory.add(task);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(100, concurrentHistory.getHistory().size(), "Каждая задача должна быть в истории один раз");
+    }
+
+    @Test
+    void historyShouldReuseSnapshotOfUnchangedTask() {
+        Task task = taskManager.createTask(new Task("Task", "Desc"));
+
+        taskManager.getTask(task.getId());
+        Task firstView = taskManager.getHistoryManager().get(0);
+        taskManager.getTask(task.getId());
+        assertSame(firstView, taskManager.getHistoryManager().get(0), "Неизменённая задача не должна копироваться заново");
+
+        task.setName("Renamed");
+        taskManager.getTask(task.getId());
+        Task secondView = taskManager.getHistoryManager().get(0);
+        assertNotSame(firstView, secondView, "После изменения в историю попадает новая версия");
+        assertEquals("Task", firstView.getName(), "Старая версия не должна меняться");
+        assertEquals("Renamed", secondView.getName());
+        assertThrows(UnsupportedOperationException.class, () -> secondView.setName("Other"),
+                "Снимок из истории нельзя изменять");
+    }
+
+    @Test
+    void snapshotTakenDuringChangeShouldNotOutliveIt() throws InterruptedException {
+        Task task = new Task("v0", "Desc");
+        task.setId(1);
+        Thread writer = new Thread(() -> {
+            for (int i = 1; i <= 100_000; i++) {
+                task.setName("v" + i);
+            }
+        });
+        Thread reader = new Thread(() -> {
+            while (writer.isAlive()) {
+                task.snapshot();
+            }
+        });
+        writer.start();
+        reader.start();
+        writer.join();
+        reader.join();
+
+        assertEquals("v100000", task.snapshot().getName(), "Копия должна соответствовать последнему изменению");
+    }
+
+    @Test
+    void boundedHistoryShouldEvictLeastRecentlyUsed() {
+        HistorySettings settings = new HistorySettings();
+        settings.setMaxSize(100);
+        HistoryManager boundedHistory = Managers.getDefaultHistory(settings);
+
+        for (int i = 0; i < 10_000; i++) {
+            Task task = new Task("Task " + i, "Desc");
+            task.setId(i);
+            boundedHistory.add(task);
+            if (i % 50 == 0) {
+                // к первой задаче обращаются постоянно - она не должна вытесняться
+                Task first = new Task("Task 0", "Desc");
+                boundedHistory.add(first);
+            }
+        }
+
+        List<Task> history = boundedHistory.getHistory();
+        assertEquals(100, history.size(), "История не должна расти больше заданного размера");
+        assertEquals(9_999, history.get(history.size() - 1).getId(), "Последнее обращение - в конце");
+        assertTrue(history.stream().anyMatch(task -> task.getId() == 0), "Часто используемая задача должна остаться");
+    }
+
+    @Test
+    void timeWindowHistoryShouldDropOldEntries() {
+        MutableClock clock = new MutableClock();
+        HistorySettings settings = new HistorySettings();
+        settings.setEvictionPolicy(HistoryEvictionPolicy.TIME_WINDOW);
+        settings.setTimeWindowMillis(1_000);
+        settings.setClock(clock);
+        HistoryManager windowHistory = Managers.getDefaultHistory(settings);
+
+        Task old = taskManager.createTask(new Task("Old", "Desc"));
+        Task recent = taskManager.createTask(new Task("Recent", "Desc"));
+        windowHistory.add(old);
+        clock.advance(600);
+        windowHistory.add(recent);
+        clock.advance(600);
+
+        assertEquals(List.of(recent), windowHistory.getHistory(), "Записи старше окна должны вытесняться");
+        clock.advance(600);
+        assertTrue(windowHistory.getHistory().isEmpty());
+    }
+
+    private static class MutableClock extends Clock {
+        private long millis = 1_000_000;
+
+        void advance(long delta) {
+            millis += delta;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package test;
+
+import collections.IntIntHashMap;
+import collections.IntObjectHashMap;
+import collections.IntSortedSet;
+import modelling.Epic;
+import modelling.TaskStatus;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IntCollectionsTest {
+
+    @Test
+    void intObjectMapShouldBehaveLikeHashMap() {
+        IntObjectHashMap<String> map = new IntObjectHashMap<>();
+        Map<Integer, String> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 100_000; i++) {
+            int key = random.nextInt(5_000) - 100;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key), "remove должен вернуть прежнее значение");
+            } else {
+                String value = "v" + i;
+                assertEquals(expected.put(key, value), map.put(key, value), "put должен вернуть прежнее значение");
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (Map.Entry<Integer, String> e : expected.entrySet()) {
+            assertEquals(e.getValue(), map.get((int) e.getKey()));
+        }
+        assertEquals(expected, map, "Содержимое должно совпадать с HashMap");
+        map.clear();
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    void intIntMapShouldBehaveLikeHashMap() {
+        IntIntHashMap map = new IntIntHashMap();
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(7);
+
+        for (int i = 0; i < 100_000; i++) {
+            int key = random.nextInt(2_000);
+            if (random.nextBoolean()) {
+                Integer removed = expected.remove(key);
+                assertEquals(removed == null ? IntIntHashMap.NO_VALUE : removed, map.remove(key));
+            } else {
+                expected.put(key, i);
+                map.put(key, i);
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (int key = 0; key < 2_000; key++) {
+            Integer value = expected.get(key);
+            assertEquals(value == null ? IntIntHashMap.NO_VALUE : value, map.get(key));
+        }
+    }
+
+    @Test
+    void intSortedSetShouldBehaveLikeTreeSet() {
+        IntSortedSet set = new IntSortedSet();
+        TreeSet<Integer> expected = new TreeSet<>();
+        Random random = new Random(7);
+
+        for (int i = 0; i < 50_000; i++) {
+            // в основном растущие значения, как у id, иногда - старые
+            int value = random.nextInt(4) == 0 ? random.nextInt(i + 1) : i;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(value), set.remove(value), "remove должен сообщать, был ли элемент");
+            } else {
+                expected.add(value);
+                set.add(value);
+            }
+            if (i % 1000 == 0) {
+                int after = random.nextInt(i + 1);
+                List<Integer> page = new ArrayList<>();
+                set.forEachAfter(after, 20, page::add);
+                assertEquals(new ArrayList<>(expected.tailSet(after, false)).subList(0,
+                        Math.min(20, expected.tailSet(after, false).size())), page, "Страница должна идти по порядку");
+            }
+        }
+
+        assertEquals(expected.size(), set.size());
+        List<Integer> all = new ArrayList<>();
+        set.forEachAfter(Integer.MIN_VALUE, Integer.MAX_VALUE, all::add);
+        assertEquals(new ArrayList<>(expected), all);
+    }
+
+    @Test
+    void epicShouldKeepSubtaskOrderAfterRemovals() {
+        Epic epic = new Epic("Epic", "Desc");
+        for (int id = 1; id <= 10; id++) {
+            epic.addSubtaskId(id, id % 2 == 0 ? TaskStatus.DONE : TaskStatus.NEW);
+        }
+        for (int id = 1; id <= 7; id++) {
+            epic.removeSubtaskId(id);
+        }
+        epic.addSubtaskId(11, TaskStatus.DONE);
+
+        assertEquals(List.of(8, 9, 10, 11), epic.getSubtaskIds(), "Порядок подзадач должен сохраниться");
+        assertEquals(3, epic.getSubtaskCount(TaskStatus.DONE));
+        assertEquals(1, epic.getSubtaskCount(TaskStatus.NEW));
+    }
+}
@@ -5,6 +5,8 @@ import modelling.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -152,4 +154,310 @@ public class TaskManagerTest {
         assertEquals(original.getDescription(), added.getDescription());
         assertEquals(original.getTaskStatus(), added.getTaskStatus());
     }
+
+    @Test
+    void epicStatusShouldFollowSubtaskTransitions() {
+        InMemoryTaskManager manager = new InMemoryTaskManager();
+        Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+        Subtask first = manager.createSubtask(new Subtask("Sub 1", "Desc", TaskStatus.NEW, epic.getId()));
+        Subtask second = manager.createSubtask(new Subtask("Sub 2", "Desc", TaskStatus.DONE, epic.getId()));
+        assertEquals(TaskStatus.NEW, epic.getTaskStatus());
+
+        // изменение того же объекта, который хранится в менеджере
+        first.setTaskStatus(TaskStatus.IN_PROGRESS);
+        manager.updateSubtask(first);
+        assertEquals(TaskStatus.IN_PROGRESS, epic.getTaskStatus());
+        assertEquals(1, epic.getSubtaskCount(TaskStatus.IN_PROGRESS));
+
+        first.setTaskStatus(TaskStatus.DONE);
+        manager.updateSubtask(first);
+        assertEquals(TaskStatus.DONE, epic.getTaskStatus(), "Все подзадачи выполнены");
+
+        manager.deleteSubtask(second.getId());
+        manager.createSubtask(new Subtask("Sub 3", "Desc", TaskStatus.NEW, epic.getId()));
+        assertEquals(TaskStatus.NEW, epic.getTaskStatus());
+        assertEquals(2, epic.getSubtaskCount());
+
+        manager.clearAllSubtasks();
+        assertEquals(TaskStatus.NEW, epic.getTaskStatus());
+        assertTrue(manager.findInconsistentEpics().isEmpty(), "Счётчики эпиков должны совпадать с подзадачами");
+    }
+
+    @Test
+    void viewsShouldReflectChangesWithoutRecordingHistory() {
+        Collection<Task> tasksView = manager.getTasksView();
+        Task task = manager.createTask(new Task("Task", "Desc"));
+        Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+        Subtask first = manager.createSubtask(new Subtask("Sub 1", "Desc", TaskStatus.NEW, epic.getId()));
+        Subtask second = manager.createSubtask(new Subtask("Sub 2", "Desc", TaskStatus.NEW, epic.getId()));
+
+        assertEquals(List.of(task), List.copyOf(tasksView), "Представление должно видеть новые задачи");
+        assertEquals(2, manager.getSubtasksView().size());
+        assertThrows(UnsupportedOperationException.class, () -> tasksView.remove(task), "Представление только для чтения");
+        assertTrue(manager.getHistoryManager().isEmpty(), "Обход представлений не должен попадать в историю");
+
+        List<Integer> subtaskIds = new ArrayList<>();
+        epic.forEachSubtaskId(subtaskIds::add);
+        assertEquals(List.of(first.getId(), second.getId()), subtaskIds);
+
+        manager.getSubtask(second.getId());
+        manager.getTask(task.getId());
+        List<Task> history = new ArrayList<>();
+        manager.forEachInHistory(history::add);
+        assertEquals(manager.getHistoryManager(), history, "Обход истории должен идти в том же порядке");
+    }
+
+    @Test
+    void queriesShouldNotRecordHistory() {
+        Task task = manager.createTask(new Task("Task", "Desc"));
+        Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+        Subtask subtask = manager.createSubtask(new Subtask("Sub", "Desc", TaskStatus.DONE, epic.getId()));
+
+        assertEquals(task, manager.peekTask(task.getId()));
+        assertEquals(epic, manager.peekEpic(epic.getId()));
+        assertEquals(subtask, manager.peekSubtask(subtask.getId()));
+        assertEquals(List.of(task), manager.listTasks());
+        assertEquals(List.of(epic), manager.listEpics());
+        assertEquals(List.of(subtask), manager.listSubtasks());
+        assertEquals(List.of(subtask), manager.listEpicSubtasks(epic.getId()));
+        assertEquals(List.of(epic, subtask), manager.scan(t -> t.getTaskStatus() == TaskStatus.DONE),
+                "scan должен искать по всем типам");
+        assertTrue(manager.getHistoryManager().isEmpty(), "Запросы не должны попадать в историю");
+
+        manager.getAllTasks();
+        assertEquals(List.of(task), manager.getHistoryManager(), "get* по-прежнему записывают историю");
+    }
+
+    @Test
+    void pagesShouldFollowIdOrder() {
+        for (TaskManager manager : List.of(Managers.getDefault(), Managers.getConcurrent())) {
+            List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                expected.add(manager.createTask(new Task("Task " + i, "Desc")).getId());
+            }
+            Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+            manager.deleteTask(expected.remove(4));
+            int restored = expected.get(1);
+            try {
+                manager.executeBatch(batch -> {
+                    batch.deleteTask(restored);
+                    throw new IllegalStateException("откат");
+                });
+            } catch (IllegalStateException ignored) {
+                // задача вернулась после отката
+            }
+
+            List<Integer> paged = new ArrayList<>();
+            int afterId = -1;
+            List<Task> page;
+            while (!(page = manager.listTasks(afterId, 3)).isEmpty()) {
+                assertTrue(page.size() <= 3, "Страница не должна превышать limit");
+                for (Task task : page) {
+                    paged.add(task.getId());
+                }
+                afterId = page.get(page.size() - 1).getId();
+            }
+            assertEquals(expected, paged, "Постраничный обход должен вернуть все задачи по возрастанию id");
+            assertEquals(List.of(epic), manager.listEpics(-1, 5));
+            assertTrue(manager.listSubtasks(-1, 5).isEmpty());
+            assertTrue(manager.getHistoryManager().isEmpty(), "Страницы не должны попадать в историю");
+        }
+    }
+
+    @Test
+    void diagnosticsShouldBeSilentByDefaultAndRespectLevels() {
+        InMemoryTaskManager manager = new InMemoryTaskManager();
+        List<String> messages = new ArrayList<>();
+        manager.createTask(new Task("Task", "Desc"));
+
+        manager.setDiagnosticSink(new DiagnosticSink() {
+            @Override
+            public boolean isEnabled(DiagnosticLevel level) {
+                return level == DiagnosticLevel.WARN;
+            }
+
+            @Override
+            public void accept(DiagnosticLevel level, String message) {
+                messages.add(level + " " + message);
+            }
+        });
+        Task task = manager.createTask(new Task("Task", "Desc"));
+        manager.deleteTask(task.getId() + 100);
+
+        assertEquals(List.of("WARN Such a task with such id does not exist."), messages,
+                "Должны приходить только сообщения включённых уровней");
+    }
+
+    @Test
+    void statusIndexShouldFollowChanges() {
+        InMemoryTaskManager manager = new InMemoryTaskManager();
+        Task task = manager.createTask(new Task("Task", "Desc", TaskStatus.IN_PROGRESS));
+        Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+        Subtask first = manager.createSubtask(new Subtask("Sub 1", "Desc", TaskStatus.DONE, epic.getId()));
+        Subtask second = manager.createSubtask(new Subtask("Sub 2", "Desc", TaskStatus.NEW, epic.getId()));
+
+        assertEquals(List.of(task), manager.getTasksByStatus(TaskStatus.IN_PROGRESS));
+        assertEquals(List.of(first), manager.getSubtasksByStatus(TaskStatus.DONE));
+        assertEquals(List.of(epic), manager.getEpicsByStatus(TaskStatus.NEW));
+
+        // изменение самого объекта и затем update
+        second.setTaskStatus(TaskStatus.DONE);
+        manager.updateSubtask(second);
+        assertEquals(2, manager.countByStatus("Subtask", TaskStatus.DONE));
+        assertEquals(List.of(epic), manager.getEpicsByStatus(TaskStatus.DONE), "Статус эпика должен попасть в индекс");
+
+        assertThrows(IllegalStateException.class, () -> manager.executeBatch(batch -> {
+            batch.deleteSubtask(first.getId());
+            batch.deleteTask(task.getId());
+            throw new IllegalStateException("откат");
+        }));
+        assertEquals(2, manager.countByStatus("Subtask", TaskStatus.DONE), "Откат должен вернуть индекс");
+        assertEquals(1, manager.countByStatus("Task", TaskStatus.IN_PROGRESS));
+
+        manager.deleteEpic(epic.getId());
+        assertEquals(0, manager.countByStatus("Subtask", TaskStatus.DONE));
+        assertEquals(0, manager.countByStatus("Epic", TaskStatus.DONE));
+        assertEquals(1, (int) manager.countByStatus().get(TaskStatus.IN_PROGRESS));
+        assertEquals(0, (int) manager.countByStatus().get(TaskStatus.DONE));
+    }
+
+    @Test
+    void updateTaskShouldKeepIdOfReplacedTask() {
+        InMemoryTaskManager manager = new InMemoryTaskManager();
+        Task task = manager.createTask(new Task("Купить молоко", "Desc"));
+
+        assertTrue(manager.updateTask(task.getId(), new Task("Купить хлеб", "Desc", TaskStatus.DONE)));
+        Task updated = manager.getTask(task.getId());
+        assertEquals(task.getId(), updated.getId(), "Новая версия должна получить id заменённой задачи");
+        assertEquals(List.of(updated), manager.listTasks());
+        assertEquals(1, manager.countByStatus("Task", TaskStatus.DONE));
+        assertEquals(0, manager.countByStatus("Task", TaskStatus.NEW), "Старый статус должен уйти из индекса");
+        assertEquals(List.of(task.getId()), manager.search("хлеб", 10));
+        assertTrue(manager.search("молоко", 10).isEmpty());
+    }
+
+    @Test
+    void searchShouldFindByWordsAndPrefixes() {
+        InMemoryTaskManager manager = new InMemoryTaskManager();
+        Task milk = manager.createTask(new Task("Купить молоко", "В магазине у дома"));
+        Task bread = manager.createTask(new Task("Купить хлеб", "Молоко тоже не забыть"));
+        Epic move = manager.createEpic(new Epic("Переезд", "Собрать вещи, купить коробки"));
+
+        assertEquals(List.of(milk.getId(), bread.getId()), manager.search("молоко", 10),
+                "Совпадение в имени должно быть выше совпадения в описании");
+        assertEquals(List.of(bread.getId()), manager.search("КУП хле", 10), "Регистр и префиксы не важны");
+        assertEquals(3, manager.search("куп", 10).size());
+        assertEquals(1, manager.search("куп", 1).size(), "Результат ограничен limit");
+
+        manager.updateEpic(move.getId(), "Переезд", "Заказать машину");
+        assertTrue(manager.search("коробки", 10).isEmpty(), "Старый текст должен уйти из индекса");
+        assertEquals(List.of(move.getId()), manager.search("машину", 10));
+
+        manager.deleteTask(milk.getId());
+        assertEquals(List.of(bread.getId()), manager.search("молоко", 10), "Удалённая задача не должна находиться");
+        manager.clearAllEpics();
+        assertTrue(manager.search("переезд", 10).isEmpty());
+    }
+
+    @Test
+    void batchShouldRecalculateEpicStatusOnCommit() {
+        Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+
+        manager.executeBatch(batch -> {
+            for (int i = 0; i < 5; i++) {
+                batch.createSubtask(new Subtask("Sub " + i, "Desc", TaskStatus.DONE, epic.getId()));
+            }
+        });
+
+        assertEquals(5, manager.getAllEpicSubtasks(epic.getId()).size());
+        assertEquals(TaskStatus.DONE, manager.getEpic(epic.getId()).getTaskStatus(), "Статус эпика должен пересчитаться после пакета");
+    }
+
+    @Test
+    void batchShouldRollbackAllChangesOnFailure() {
+        InMemoryTaskManager manager = new InMemoryTaskManager();
+        Task task = manager.createTask(new Task("Task", "Desc"));
+        Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+        Subtask subtask = manager.createSubtask(new Subtask("Sub", "Desc", TaskStatus.NEW, epic.getId()));
+
+        Subtask doneSubtask = new Subtask("Sub", "Desc", TaskStatus.DONE, epic.getId());
+        doneSubtask.setId(subtask.getId());
+
+        assertThrows(IllegalStateException.class, () -> manager.executeBatch(batch -> {
+            batch.deleteTask(task.getId());
+            batch.createTask(new Task("New task", "Desc"));
+            batch.updateSubtask(doneSubtask);
+            batch.updateEpic(epic.getId(), "Renamed", "Renamed");
+            throw new IllegalStateException("ошибка импорта");
+        }));
+
+        assertEquals(1, manager.getAllTasks().size(), "Удалённый в пакете таск должен вернуться");
+        assertEquals("Task", manager.getTask(task.getId()).getName());
+        assertEquals("Epic", manager.getEpic(epic.getId()).getName(), "Изменения эпика должны откатиться");
+        assertEquals(TaskStatus.NEW, manager.getSubtask(subtask.getId()).getTaskStatus(), "Изменения подзадачи должны откатиться");
+        assertEquals(subtask.getId() + 1, manager.createTask(new Task("Next", "Desc")).getId(), "Счётчик id должен откатиться");
+        assertTrue(manager.findInconsistentEpics().isEmpty(), "Счётчики эпиков должны откатиться вместе с подзадачами");
+    }
+
+    @Test
+    void batchRollbackShouldRestoreHistoryAndOriginalObjects() {
+        InMemoryTaskManager manager = new InMemoryTaskManager();
+        Task task = manager.createTask(new Task("Task", "Desc"));
+        Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+        Subtask subtask = manager.createSubtask(new Subtask("Sub", "Desc", TaskStatus.DONE, epic.getId()));
+        manager.getTask(task.getId());
+        manager.getEpic(epic.getId());
+        manager.getSubtask(subtask.getId());
+        List<Task> history = manager.getHistoryManager();
+
+        assertThrows(IllegalStateException.class, () -> manager.executeBatch(batch -> {
+            batch.deleteTask(task.getId());
+            batch.updateEpic(epic.getId(), "Renamed", "Renamed");
+            batch.deleteEpic(epic.getId());
+            Task created = batch.createTask(new Task("New task", "Desc"));
+            batch.getTask(created.getId());
+            throw new IllegalStateException("ошибка импорта");
+        }));
+
+        assertEquals(history, manager.getHistoryManager(), "Откат должен вернуть историю просмотров");
+        assertSame(task, manager.getTask(task.getId()), "Должен вернуться тот же объект, а не копия");
+        assertSame(epic, manager.getEpic(epic.getId()));
+        assertSame(subtask, manager.getSubtask(subtask.getId()));
+        assertEquals("Epic", epic.getName(), "Изменения эпика должны откатиться в самом объекте");
+        assertEquals(List.of(subtask.getId()), epic.getSubtaskIds());
+        assertEquals(TaskStatus.DONE, epic.getTaskStatus());
+        assertTrue(manager.findInconsistentEpics().isEmpty());
+    }
+
+    @Test
+    void batchShouldCommitHistoryRemovals() {
+        InMemoryTaskManager manager = new InMemoryTaskManager();
+        Task task = manager.createTask(new Task("Task", "Desc"));
+        Task kept = manager.createTask(new Task("Kept", "Desc"));
+        manager.getTask(task.getId());
+        manager.getTask(kept.getId());
+
+        manager.executeBatch(batch -> batch.deleteTask(task.getId()));
+
+        assertEquals(List.of(kept), manager.getHistoryManager(), "Удалённая в пакете задача должна уйти из истории");
+    }
+
+    @Test
+    void batchShouldRollbackAndLeaveBatchModeOnError() {
+        InMemoryTaskManager manager = new InMemoryTaskManager();
+        Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+        Subtask subtask = manager.createSubtask(new Subtask("Sub", "Desc", TaskStatus.NEW, epic.getId()));
+
+        assertThrows(AssertionError.class, () -> manager.executeBatch(batch -> {
+            batch.createTask(new Task("New task", "Desc"));
+            throw new AssertionError("ошибка внутри пакета");
+        }));
+        assertTrue(manager.getAllTasks().isEmpty(), "Изменения пакета должны откатиться и при Error");
+
+        Subtask doneSubtask = new Subtask("Sub", "Desc", TaskStatus.DONE, epic.getId());
+        doneSubtask.setId(subtask.getId());
+        manager.updateSubtask(doneSubtask);
+        assertEquals(TaskStatus.DONE, manager.getEpic(epic.getId()).getTaskStatus(),
+                "После ошибки менеджер не должен оставаться внутри пакета");
+    }
 }